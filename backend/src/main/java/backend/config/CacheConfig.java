@@ -0,0 +1,36 @@
+package backend.config;
+
+import backend.model.RecipeManagementModel;
+import backend.model.cookingPlansModel;
+import backend.service.EntityCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig {
+
+    // "local" uses the in-process caches below; "hibernate" leaves caching to the second-level cache
+    @Value("${app.cache.mode:local}")
+    private String cacheMode;
+
+    @Value("${app.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Bean
+    public EntityCache<Long, RecipeManagementModel> recipeCache() {
+        return new EntityCache<>("recipes", localMaxSize(), ttlSeconds);
+    }
+
+    @Bean
+    public EntityCache<Long, cookingPlansModel> cookingPlanCache() {
+        return new EntityCache<>("cookingPlans", localMaxSize(), ttlSeconds);
+    }
+
+    private int localMaxSize() {
+        return "local".equalsIgnoreCase(cacheMode) ? maxSize : 0;
+    }
+}
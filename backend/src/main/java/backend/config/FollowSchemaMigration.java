@@ -0,0 +1,54 @@
+package backend.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Brings user_follow tables created before ids were AUTO_INCREMENT and pairs were unique up to date.
+// ddl-auto=update adds neither: it never alters an existing column, and the unique key fails while duplicates exist.
+// Every step checks the current schema first, so this is a no-op on new or already migrated databases.
+@Component
+public class FollowSchemaMigration {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Injected only so this runs after Hibernate has created or updated the schema
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void migrate() {
+        if (count("SELECT COUNT(*) FROM information_schema.tables "
+                + "WHERE table_schema = DATABASE() AND table_name = 'user_follow'") == 0) {
+            return;
+        }
+
+        if (count("SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() "
+                + "AND table_name = 'user_follow' AND column_name = 'id' AND extra LIKE '%auto_increment%'") == 0) {
+            // A row stored with id 0 would clash with the first value AUTO_INCREMENT assigns
+            jdbcTemplate.update("UPDATE user_follow SET id = (SELECT next_id FROM "
+                    + "(SELECT COALESCE(MAX(id), 0) + 1 AS next_id FROM user_follow) m) WHERE id = 0");
+            jdbcTemplate.execute("ALTER TABLE user_follow MODIFY id BIGINT NOT NULL AUTO_INCREMENT");
+            System.out.println("Migrated user_follow.id to AUTO_INCREMENT");
+        }
+
+        if (count("SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() "
+                + "AND table_name = 'user_follow' AND index_name = 'uk_user_follow_pair'") == 0) {
+            // Keep the oldest row of each duplicated pair
+            int removed = jdbcTemplate.update("DELETE newer FROM user_follow newer JOIN user_follow older "
+                    + "ON newer.follower_id = older.follower_id AND newer.following_id = older.following_id "
+                    + "AND newer.id > older.id");
+            jdbcTemplate.execute("ALTER TABLE user_follow "
+                    + "ADD CONSTRAINT uk_user_follow_pair UNIQUE (follower_id, following_id)");
+            System.out.println("Added uk_user_follow_pair after removing " + removed + " duplicate follows");
+        }
+    }
+
+    private int count(String sql) {
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,50 @@
+package backend.config;
+
+import backend.service.BlobBackend;
+import backend.service.LocalBlobBackend;
+import backend.service.S3BlobBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Configuration
+public class StorageConfig {
+
+    // "local" keeps uploads on disk under app.upload.store-dir; "s3" puts them in an S3-compatible bucket
+    @Value("${app.upload.backend:local}")
+    private String backend;
+
+    @Value("${app.upload.store-dir:src/main/resources/static/uploads/}")
+    private String storeDir;
+
+    @Value("${app.upload.s3.endpoint:http://localhost:9000}")
+    private String s3Endpoint;
+
+    @Value("${app.upload.s3.region:us-east-1}")
+    private String s3Region;
+
+    @Value("${app.upload.s3.bucket:uploads}")
+    private String s3Bucket;
+
+    @Value("${app.upload.s3.access-key:}")
+    private String s3AccessKey;
+
+    @Value("${app.upload.s3.secret-key:}")
+    private String s3SecretKey;
+
+    @Value("${app.upload.s3.presign-ttl-seconds:3600}")
+    private long s3PresignTtlSeconds;
+
+    @Bean
+    public BlobBackend blobBackend() {
+        if ("s3".equalsIgnoreCase(backend)) {
+            return new S3BlobBackend(URI.create(s3Endpoint), s3Region, s3Bucket, s3AccessKey, s3SecretKey,
+                    Duration.ofSeconds(s3PresignTtlSeconds));
+        }
+        return new LocalBlobBackend(Paths.get(storeDir));
+    }
+}
@@ -0,0 +1,44 @@
+package backend.config;
+
+import backend.service.BlobBackend;
+import backend.service.FileServingService;
+import backend.service.UploadStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import java.io.IOException;
+
+// Stored uploads in a remote backend (e.g. S3) are not proxied through the static resource handler:
+// clients are redirected to a signed URL, as FileServingService does for the controller routes
+class UploadRedirectInterceptor implements HandlerInterceptor {
+
+    private final BlobBackend blobBackend;
+    private final FileServingService fileServingService;
+
+    UploadRedirectInterceptor(BlobBackend blobBackend, FileServingService fileServingService) {
+        this.blobBackend = blobBackend;
+        this.fileServingService = fileServingService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        // Controller routes under /uploads (e.g. profile pictures with ?size=) do their own serving
+        if (!(handler instanceof ResourceHttpRequestHandler)
+                || !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI();
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        if (!UploadStore.isStoredName(fileName)) {
+            return true;
+        }
+        String key = UploadStore.keyFor(fileName);
+        if (blobBackend.localPath(key).isPresent()) {
+            return true; // Served from disk by UploadResourceResolver
+        }
+        fileServingService.serve(blobBackend, key, request, response);
+        return false;
+    }
+}
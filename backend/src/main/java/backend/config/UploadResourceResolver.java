@@ -0,0 +1,42 @@
+package backend.config;
+
+import backend.service.BlobBackend;
+import backend.service.UploadStore;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+// Looks up content-addressed upload names on local disk; anything else falls through to the static folder.
+// Names in a remote backend never get here: UploadRedirectInterceptor redirects them to a signed URL
+class UploadResourceResolver implements ResourceResolver {
+
+    private final BlobBackend blobBackend;
+
+    UploadResourceResolver(BlobBackend blobBackend) {
+        this.blobBackend = blobBackend;
+    }
+
+    @Override
+    public Resource resolveResource(HttpServletRequest request, String requestPath,
+                                    List<? extends Resource> locations, ResourceResolverChain chain) {
+        String fileName = requestPath.substring(requestPath.lastIndexOf('/') + 1);
+        if (!UploadStore.isStoredName(fileName)) {
+            return chain.resolveResource(request, requestPath, locations);
+        }
+        String key = UploadStore.keyFor(fileName);
+        Optional<Path> file = blobBackend.localPath(key);
+        return file.isPresent() && Files.isRegularFile(file.get()) ? new FileSystemResource(file.get()) : null;
+    }
+
+    @Override
+    public String resolveUrlPath(String resourcePath, List<? extends Resource> locations, ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourcePath, locations);
+    }
+}
@@ -0,0 +1,78 @@
+package backend.controller;
+
+import backend.model.RecipeManagementModel;
+import backend.model.cookingPlansModel;
+import backend.service.EntityCache;
+import backend.service.ImageDerivativeService;
+import backend.service.SuggestionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "*")
+@RequestMapping("/cache")
+public class CacheController {
+
+    @Autowired
+    private EntityCache<Long, RecipeManagementModel> recipeCache;
+
+    @Autowired
+    private EntityCache<Long, cookingPlansModel> cookingPlanCache;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.cache.mode:local}")
+    private String cacheMode;
+
+    // Hit/miss/eviction counters for the local caches and the Hibernate second-level cache
+    @GetMapping("/stats")
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("mode", cacheMode);
+        response.put("recipes", recipeCache.stats());
+        response.put("cookingPlans", cookingPlanCache.stats());
+        response.put("suggestions", suggestionService.stats());
+        response.put("imageVariants", imageDerivativeService.stats());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> hibernate = new HashMap<>();
+        hibernate.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        hibernate.put("hits", statistics.getSecondLevelCacheHitCount());
+        hibernate.put("misses", statistics.getSecondLevelCacheMissCount());
+        hibernate.put("puts", statistics.getSecondLevelCachePutCount());
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            if (regionStatistics != null) {
+                hibernate.put(region, Map.of(
+                        "hits", regionStatistics.getHitCount(),
+                        "misses", regionStatistics.getMissCount(),
+                        "elementsInMemory", regionStatistics.getElementCountInMemory()));
+            }
+        }
+        response.put("hibernate", hibernate);
+        return response;
+    }
+
+    @DeleteMapping
+    public Map<String, String> clearCaches() {
+        recipeCache.invalidateAll();
+        cookingPlanCache.invalidateAll();
+        entityManagerFactory.getCache().evictAll();
+        return Map.of("message", "Caches cleared");
+    }
+}
@@ -0,0 +1,86 @@
+package backend.controller;
+
+import backend.service.ChunkedUploadService;
+import backend.service.ImageDerivativeService;
+import backend.service.UploadStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "*")
+@RequestMapping("/media/uploads")
+public class MediaUploadController {
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    // Start a resumable upload; body: {"fileName": "...", "size": bytes}
+    @PostMapping
+    public ResponseEntity<?> createSession(@RequestBody Map<String, Object> request) {
+        try {
+            Object size = request.get("size");
+            ChunkedUploadService.UploadStatus status = chunkedUploadService.create(
+                    (String) request.get("fileName"), size instanceof Number number ? number.longValue() : -1);
+            return ResponseEntity.status(HttpStatus.CREATED).body(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Error creating upload session: " + e.getMessage()));
+        }
+    }
+
+    // Received byte count and the first missing offset, used to resume after a dropped connection
+    @GetMapping("/{sessionId}")
+    public ChunkedUploadService.UploadStatus getStatus(@PathVariable String sessionId) throws IOException {
+        return chunkedUploadService.status(sessionId);
+    }
+
+    // Write the raw request body at the given offset
+    @PutMapping(value = "/{sessionId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(@PathVariable String sessionId,
+                                         @RequestParam long offset,
+                                         InputStream body) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.writeChunk(sessionId, offset, body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Error writing chunk: " + e.getMessage()));
+        }
+    }
+
+    // Finish the upload; the returned filename can be stored on a recipe (e.g. as its video)
+    @PostMapping("/{sessionId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable String sessionId) {
+        try {
+            UploadStore.StoredFile stored = chunkedUploadService.complete(sessionId);
+            if (stored.created()) {
+                imageDerivativeService.submit(stored.key());
+            }
+            return ResponseEntity.ok(Map.of("filename", stored.fileName()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Error completing upload: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String sessionId) throws IOException {
+        chunkedUploadService.abort(sessionId);
+        return ResponseEntity.noContent().build();
+    }
+}
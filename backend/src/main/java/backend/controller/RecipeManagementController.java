@@ -2,18 +2,59 @@ package backend.controller;
 
 import backend.exception.RecipeNotFoundException;
 import backend.model.RecipeManagementModel;
+import backend.model.UserModel;
 import backend.repository.RecipeManagementRepository;
+import backend.repository.UserRepository;
+import backend.service.EntityCache;
+import backend.service.ExportService;
+import backend.service.FeedService;
+import backend.service.FileServingService;
+import backend.service.ImageDerivativeService;
+import backend.service.IngredientIndex;
+import backend.service.RecipeImportService;
+import backend.service.RecipeSearchIndex;
+import backend.service.TableChangeCounter;
+import backend.service.UploadStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @CrossOrigin(origins = "*") // Allows requests from all origins
@@ -23,27 +64,86 @@ public class RecipeManagementController {
     @Autowired
     private RecipeManagementRepository recipeManagementRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RecipeSearchIndex recipeSearchIndex;
+
+    @Autowired
+    private IngredientIndex ingredientIndex;
+
+    @Autowired
+    private EntityCache<Long, RecipeManagementModel> recipeCache;
+
+    @Autowired
+    private TableChangeCounter tableChangeCounter;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private FileServingService fileServingService;
+
+    @Autowired
+    private RecipeImportService recipeImportService;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.import.batch-size:1000}")
+    private int importBatchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     // Create a new recipe
     @PostMapping
-    public RecipeManagementModel newRecipe(@RequestBody RecipeManagementModel newRecipe) {
-        return recipeManagementRepository.save(newRecipe);
+    public RecipeManagementModel newRecipe(@RequestBody RecipeManagementModel newRecipe,
+                                           @AuthenticationPrincipal OAuth2User principal) {
+        // The author is the signed-in user, never whatever the request body claims
+        newRecipe.setAuthorId(authorIdOf(principal));
+        RecipeManagementModel savedRecipe = recipeManagementRepository.save(newRecipe);
+        uploadStore.updateReferences(null, savedRecipe.getImages());
+        uploadStore.updateReferences(null, savedRecipe.getVideo());
+        onRecipeSaved(savedRecipe);
+        feedService.recipeCreated(savedRecipe);
+        return savedRecipe;
+    }
+
+    // Bulk import recipes from newline-delimited JSON, one recipe per line
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE})
+    public RecipeImportService.ImportResult importRecipes(InputStream body,
+                                                          @RequestParam(required = false) Integer batchSize,
+                                                          @AuthenticationPrincipal OAuth2User principal) throws IOException {
+        int size = batchSize != null ? Math.max(1, Math.min(batchSize, 10000)) : importBatchSize;
+        return recipeImportService.importNdjson(body, size, authorIdOf(principal));
     }
 
     // Upload recipe image(s)
     @PostMapping("/uploadImages")
     public String uploadImages(@RequestParam("file") MultipartFile file) {
-        String folder = "src/main/resources/static/uploads/"; // Updated to static folder
-        String fileName = file.getOriginalFilename();
-        File uploadDir = new File(folder);
-
-        if (!uploadDir.exists()) {
-            uploadDir.mkdirs(); // Creates directory if it doesn't exist
-        }
-
         try {
-            Path filePath = Paths.get(folder + fileName);
-            file.transferTo(filePath);
-            return "{\"filename\": \"" + fileName + "\"}"; // JSON response
+            // Stored once per distinct content; re-uploads get the existing file name back
+            UploadStore.StoredFile stored = uploadStore.store(file.getInputStream(), file.getOriginalFilename());
+            if (stored.created()) {
+                imageDerivativeService.submit(stored.key());
+            }
+            return "{\"filename\": \"" + stored.fileName() + "\"}"; // JSON response
         } catch (IOException e) {
             e.printStackTrace();
             return "{\"error\": \"Error uploading file\"}";
@@ -52,50 +152,212 @@ public class RecipeManagementController {
 
     // Get all recipes
     @GetMapping
-    public List<RecipeManagementModel> getAllRecipes() {
+    public List<RecipeManagementModel> getAllRecipes(WebRequest request) {
+        if (request.checkNotModified(tableChangeCounter.listTag(TableChangeCounter.RECIPES))) {
+            return null;
+        }
         return recipeManagementRepository.findAll();
     }
 
+    // Get a page of recipes after the given id cursor
+    @GetMapping(params = "limit")
+    public Map<String, Object> getRecipesPage(@RequestParam(defaultValue = "0") Long after,
+                                              @RequestParam int limit,
+                                              WebRequest request) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        if (request.checkNotModified(tableChangeCounter.listTag(TableChangeCounter.RECIPES) + "-" + after + "-" + pageSize)) {
+            return null;
+        }
+        List<RecipeManagementModel> recipes = recipeManagementRepository
+                .findByRecipeIdGreaterThanOrderByRecipeIdAsc(after, Limit.of(pageSize));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", recipes);
+        response.put("nextCursor", recipes.size() < pageSize ? null : recipes.get(recipes.size() - 1).getRecipeId());
+        return response;
+    }
+
+    // Lightweight list view: a keyset page of only the requested fields (default recipeId, title, image)
+    @GetMapping("/summary")
+    public Map<String, Object> getRecipeSummaries(@RequestParam(defaultValue = "0") Long after,
+                                                  @RequestParam(defaultValue = "20") int limit,
+                                                  @RequestParam(defaultValue = "recipeId,title,image") List<String> fields,
+                                                  WebRequest request) {
+        Set<String> selectedFields = new LinkedHashSet<>();
+        for (String field : fields) {
+            String name = field.trim();
+            if (!RecipeManagementRepository.SELECTABLE_FIELDS.contains(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown recipe field: " + name);
+            }
+            selectedFields.add(name);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        if (request.checkNotModified(tableChangeCounter.listTag(TableChangeCounter.RECIPES)
+                + "-" + after + "-" + pageSize + "-" + String.join(".", selectedFields))) {
+            return null;
+        }
+
+        List<Map<String, Object>> rows = recipeManagementRepository.findFieldsAfter(selectedFields, after, pageSize);
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", rows);
+        response.put("nextCursor", rows.size() < pageSize ? null : rows.get(rows.size() - 1).get("recipeId"));
+        return response;
+    }
+
+    // Stream all recipes as a JSON array, one row at a time
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllRecipes() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = out -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<RecipeManagementModel> recipes = recipeManagementRepository.streamAllOrderByRecipeId();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                Iterator<RecipeManagementModel> iterator = recipes.iterator();
+                while (iterator.hasNext()) {
+                    RecipeManagementModel recipe = iterator.next();
+                    writer.writeValue(generator, recipe);
+                    entityManager.detach(recipe); // Keep the persistence context from growing with the table
+                }
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Export all recipes as NDJSON or CSV, gzipped when the client accepts it
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRecipes(@RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return exportService.exportResponse(ExportService.Dataset.RECIPES, format, acceptEncoding);
+    }
+
+    // Full-text search over title, description, ingredients and steps
+    @GetMapping("/search")
+    public List<RecipeManagementModel> searchRecipes(@RequestParam("q") String query,
+                                                     @RequestParam(defaultValue = "20") int limit) {
+        List<Long> rankedIds = recipeSearchIndex.search(query, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        Map<Long, RecipeManagementModel> recipesById = recipeManagementRepository.findAllById(rankedIds).stream()
+                .collect(Collectors.toMap(RecipeManagementModel::getRecipeId, Function.identity()));
+        return rankedIds.stream()
+                .map(recipesById::get)
+                .filter(recipe -> recipe != null)
+                .toList();
+    }
+
+    // Recipes that can be cooked from the given pantry with at most `missing` extra ingredients
+    @GetMapping("/pantry")
+    public List<Map<String, Object>> findCookableRecipes(@RequestParam List<String> ingredients,
+                                                         @RequestParam(defaultValue = "0") int missing,
+                                                         @RequestParam(defaultValue = "20") int limit) {
+        List<IngredientIndex.PantryMatch> matches = ingredientIndex.findCookable(
+                ingredients, Math.max(0, missing), Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        Map<Long, RecipeManagementModel> recipesById = recipeManagementRepository
+                .findAllById(matches.stream().map(IngredientIndex.PantryMatch::recipeId).toList()).stream()
+                .collect(Collectors.toMap(RecipeManagementModel::getRecipeId, Function.identity()));
+
+        return matches.stream()
+                .filter(match -> recipesById.containsKey(match.recipeId()))
+                .map(match -> {
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("recipe", recipesById.get(match.recipeId()));
+                    result.put("missingIngredients", match.missingIngredients());
+                    return result;
+                })
+                .toList();
+    }
+
     // Get a single recipe by ID
     @GetMapping("/{id}")
-    public RecipeManagementModel getRecipeById(@PathVariable Long id) {
-        return recipeManagementRepository.findById(id).orElseThrow(() -> new RecipeNotFoundException(id));
+    public RecipeManagementModel getRecipeById(@PathVariable Long id, WebRequest request) {
+        RecipeManagementModel recipe = recipeCache.get(id, recipeManagementRepository::findById)
+                .orElseThrow(() -> new RecipeNotFoundException(id));
+        if (request.checkNotModified(TableChangeCounter.entityTag(TableChangeCounter.RECIPES, id, recipe.getVersion()))) {
+            return null;
+        }
+        return recipe;
     }
 
     // Serve uploaded image(s)
-    private final String UPLOAD_DIR = "src/main/resources/static/uploads/"; // Corrected path for serving files
+    private static final Path LEGACY_UPLOAD_DIR = Paths.get("src/main/resources/static/uploads/"); // Files saved before the upload store
     @GetMapping("/uploads/{filename}")
-    public ResponseEntity<FileSystemResource> getImage(@PathVariable String filename) {
-        File file = new File(UPLOAD_DIR + filename); // Serving the file from static folder
-        if (!file.exists()) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok(new FileSystemResource(file));
+    public void getImage(@PathVariable String filename,
+                         @RequestParam(required = false) String size,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        fileServingService.serveUpload(filename, size, LEGACY_UPLOAD_DIR, request, response);
     }
 
     // Delete a recipe
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteRecipe(@PathVariable Long id) {
-        if (recipeManagementRepository.existsById(id)) {
-            recipeManagementRepository.deleteById(id);
-            return ResponseEntity.noContent().build();
+        Boolean deleted = new TransactionTemplate(transactionManager).execute(status ->
+                recipeManagementRepository.findByIdForUpdate(id)
+                        .map(recipe -> {
+                            recipeManagementRepository.delete(recipe);
+                            uploadStore.releaseAll(Arrays.asList(recipe.getImages(), recipe.getVideo()));
+                            return true;
+                        })
+                        .orElse(false));
+        if (!Boolean.TRUE.equals(deleted)) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
+        onRecipeDeleted(id);
+        return ResponseEntity.noContent().build();
     }
 
     // Update a recipe
     @PutMapping("/{id}")
     public ResponseEntity<RecipeManagementModel> updateRecipe(@PathVariable Long id, @RequestBody RecipeManagementModel updatedRecipe) {
-        return recipeManagementRepository.findById(id)
-                .map(recipe -> {
-                    recipe.setTitle(updatedRecipe.getTitle());
-                    recipe.setDescription(updatedRecipe.getDescription());
-                    recipe.setIngredients(updatedRecipe.getIngredients());
-                    recipe.setSteps(updatedRecipe.getSteps());
-                    recipe.setImages(updatedRecipe.getImages());
-                    recipe.setVideo(updatedRecipe.getVideo());
-                    return ResponseEntity.ok(recipeManagementRepository.save(recipe));
-                })
-                .orElseGet(() -> ResponseEntity.notFound().build());
+        RecipeManagementModel savedRecipe = new TransactionTemplate(transactionManager).execute(status ->
+                recipeManagementRepository.findByIdForUpdate(id)
+                        .map(recipe -> {
+                            String previousImages = recipe.getImages();
+                            String previousVideo = recipe.getVideo();
+                            recipe.setTitle(updatedRecipe.getTitle());
+                            recipe.setDescription(updatedRecipe.getDescription());
+                            recipe.setIngredients(updatedRecipe.getIngredients());
+                            recipe.setSteps(updatedRecipe.getSteps());
+                            recipe.setImages(updatedRecipe.getImages());
+                            recipe.setVideo(updatedRecipe.getVideo());
+                            RecipeManagementModel saved = recipeManagementRepository.save(recipe);
+                            uploadStore.updateReferences(previousImages, saved.getImages());
+                            uploadStore.updateReferences(previousVideo, saved.getVideo());
+                            return saved;
+                        })
+                        .orElse(null));
+        if (savedRecipe == null) {
+            return ResponseEntity.notFound().build();
+        }
+        onRecipeSaved(savedRecipe);
+        return ResponseEntity.ok(savedRecipe);
+    }
+
+    // Id of the user account behind a Google sign-in, matched by email as OAuth2Controller does
+    private Long authorIdOf(OAuth2User principal) {
+        if (principal == null) {
+            return null;
+        }
+        String email = principal.getAttribute("email");
+        return email == null ? null : userRepository.findByEmail(email).map(UserModel::getId).orElse(null);
+    }
+
+    // Keep caches and in-memory indexes in step with writes
+    private void onRecipeSaved(RecipeManagementModel recipe) {
+        recipeCache.invalidate(recipe.getRecipeId());
+        recipeSearchIndex.index(recipe);
+        ingredientIndex.index(recipe);
+        tableChangeCounter.changed(TableChangeCounter.RECIPES);
+    }
+
+    private void onRecipeDeleted(Long id) {
+        recipeCache.invalidate(id);
+        recipeSearchIndex.remove(id);
+        ingredientIndex.remove(id);
+        tableChangeCounter.changed(TableChangeCounter.RECIPES);
     }
 }
@@ -0,0 +1,35 @@
+package backend.controller;
+
+import backend.service.UploadGarbageCollector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@CrossOrigin(origins = "*")
+@RequestMapping("/media/gc")
+public class UploadMaintenanceController {
+
+    @Autowired
+    private UploadGarbageCollector uploadGarbageCollector;
+
+    // Totals and last-run figures for the orphaned upload sweeper, including bytes reclaimed
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        return uploadGarbageCollector.stats();
+    }
+
+    // Start a sweep now instead of waiting for the schedule; it runs in the background
+    @PostMapping
+    public ResponseEntity<Map<String, String>> startSweep() {
+        if (Boolean.TRUE.equals(uploadGarbageCollector.stats().get("running"))) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", "A sweep is already running"));
+        }
+        CompletableFuture.runAsync(uploadGarbageCollector::sweep);
+        return ResponseEntity.accepted().body(Map.of("message", "Sweep started"));
+    }
+}
@@ -1,29 +1,41 @@
 package backend.controller;
 
 import backend.exception.UserNotFoundException;
-import backend.model.UserFollow;
 import backend.model.UserModel;
+import backend.model.UserSummary;
 
 import backend.repository.UserRepository;
 import backend.repository.UserFollowRepository;
-
+import backend.service.FeedService;
+import backend.service.FileServingService;
+import backend.service.FollowBatchService;
+import backend.service.FollowCounters;
+import backend.service.FollowGraph;
+import backend.service.SuggestionService;
+import backend.service.ImageDerivativeService;
+import backend.service.UploadStore;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
@@ -35,12 +47,41 @@ public class UserController {
     @Autowired
     private UserFollowRepository userFollowRepository;
 
+    @Autowired
+    private FollowGraph followGraph;
+
+    @Autowired
+    private FollowCounters followCounters;
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private FollowBatchService followBatchService;
 
 
 
     @Autowired
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private FileServingService fileServingService;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static final int MAX_FOLLOW_BATCH = 500;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final String UPLOAD_DIR = "src/main/resources/static/uploads/profile-pictures/";
 
     @PostMapping("/user")
@@ -73,18 +114,9 @@ public class UserController {
             @PathVariable Long id,
             @RequestParam("file") MultipartFile file) {
         try {
-            UserModel user = userRepository.findById(id)
-                    .orElseThrow(() -> new UserNotFoundException(id));
-
-            // Create upload directory if it doesn't exist
-            File uploadDir = new File(UPLOAD_DIR);
-            if (!uploadDir.exists()) {
-                System.out.println("Creating upload directory: " + UPLOAD_DIR);
-                boolean created = uploadDir.mkdirs();
-                if (!created) {
-                    System.err.println("Failed to create upload directory: " + UPLOAD_DIR);
-                    throw new IOException("Failed to create upload directory");
-                }
+            // Not loaded here: the row is read under its lock below, and a copy loaded now would be returned instead
+            if (!userRepository.existsById(id)) {
+                throw new UserNotFoundException(id);
             }
 
             // Validate file
@@ -93,31 +125,29 @@ public class UserController {
                     .body(Map.of("message", "Please select a file to upload"));
             }
 
-            // Generate unique filename
             String originalFilename = file.getOriginalFilename();
             if (originalFilename == null) {
                 return ResponseEntity.badRequest()
                     .body(Map.of("message", "Invalid filename"));
             }
 
-            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String filename = UUID.randomUUID().toString() + extension;
-            Path filePath = Paths.get(UPLOAD_DIR + filename);
-
-            System.out.println("Saving file to: " + filePath);
-
-            // Save the file
-            try {
-                Files.copy(file.getInputStream(), filePath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-            } catch (IOException e) {
-                System.err.println("Error saving file: " + e.getMessage());
-                throw e;
+            // Save the file once per distinct content; identical pictures share one stored file
+            UploadStore.StoredFile stored = uploadStore.store(file.getInputStream(), originalFilename);
+            if (stored.created()) {
+                imageDerivativeService.submit(stored.key());
             }
 
-            // Update user's profile picture path
-            String profilePicturePath = "/uploads/profile-pictures/" + filename;
-            user.setProfilePicture(profilePicturePath);
-            UserModel savedUser = userRepository.save(user);
+            // Update user's profile picture path; the previous one is read under the row lock
+            String profilePicturePath = "/uploads/profile-pictures/" + stored.fileName();
+            UserModel savedUser = new TransactionTemplate(transactionManager).execute(status -> {
+                UserModel locked = userRepository.findByIdForUpdate(id)
+                        .orElseThrow(() -> new UserNotFoundException(id));
+                String previousPicture = locked.getProfilePicture();
+                locked.setProfilePicture(profilePicturePath);
+                UserModel saved = userRepository.save(locked);
+                uploadStore.updateReferences(previousPicture, profilePicturePath);
+                return saved;
+            });
             savedUser.setPassword(null); // Don't send password back to client
 
             return ResponseEntity.ok(Map.of(
@@ -178,12 +208,22 @@ public class UserController {
         }
     }
 
+    // Keyset page of users without the password column, plus the total user count
+    @GetMapping(value = "/user", params = "limit")
+    public Map<String, Object> getUsersPage(@RequestParam(defaultValue = "0") Long after, @RequestParam int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return page(userRepository.findSummariesAfter(after, Limit.of(pageSize)), pageSize, userRepository.count());
+    }
+
     @GetMapping("/user/{id}")
     public ResponseEntity<?> getUserById(@PathVariable Long id) {
         try {
             UserModel user = userRepository.findById(id)
                     .orElseThrow(() -> new UserNotFoundException(id));
             user.setPassword(null);
+            // Stored counts plus follows not yet flushed to user_model
+            user.setFollowerCount(user.getFollowerCount() + followCounters.pendingFollowers(id));
+            user.setFollowingCount(user.getFollowingCount() + followCounters.pendingFollowing(id));
             return ResponseEntity.ok(user);
         } catch (UserNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -197,28 +237,34 @@ public class UserController {
     @PutMapping("/user/{id}")
     public ResponseEntity<?> updateUser(@PathVariable Long id, @RequestBody UserModel updatedUser) {
         try {
-            UserModel user = userRepository.findById(id)
-                    .orElseThrow(() -> new UserNotFoundException(id));
+            // Locked so saving the whole row cannot undo a profile picture change made meanwhile
+            UserModel savedUser = new TransactionTemplate(transactionManager).execute(status -> {
+                UserModel user = userRepository.findByIdForUpdate(id)
+                        .orElseThrow(() -> new UserNotFoundException(id));
+
+                // If updating email, check if new email already exists
+                if (!user.getEmail().equals(updatedUser.getEmail())) {
+                    Optional<UserModel> existingUser = userRepository.findByEmail(updatedUser.getEmail());
+                    if (existingUser.isPresent()) {
+                        return null;
+                    }
+                }
 
-            // If updating email, check if new email already exists
-            if (!user.getEmail().equals(updatedUser.getEmail())) {
-                Optional<UserModel> existingUser = userRepository.findByEmail(updatedUser.getEmail());
-                if (existingUser.isPresent()) {
-                    return ResponseEntity.status(HttpStatus.CONFLICT)
-                            .body(Map.of("message", "Email already registered"));
+                user.setFullname(updatedUser.getFullname());
+                user.setEmail(updatedUser.getEmail());
+                user.setPhone(updatedUser.getPhone());
+
+                // Only update password if provided
+                if (updatedUser.getPassword() != null && !updatedUser.getPassword().isEmpty()) {
+                    user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
                 }
-            }
 
-            user.setFullname(updatedUser.getFullname());
-            user.setEmail(updatedUser.getEmail());
-            user.setPhone(updatedUser.getPhone());
-            
-            // Only update password if provided
-            if (updatedUser.getPassword() != null && !updatedUser.getPassword().isEmpty()) {
-                user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
+                return userRepository.save(user);
+            });
+            if (savedUser == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("message", "Email already registered"));
             }
-
-            UserModel savedUser = userRepository.save(user);
             savedUser.setPassword(null);
             return ResponseEntity.ok(savedUser);
         } catch (UserNotFoundException e) {
@@ -233,10 +279,15 @@ public class UserController {
     @DeleteMapping("/user/{id}")
     public ResponseEntity<?> deleteUser(@PathVariable Long id) {
         try {
-            UserModel user = userRepository.findById(id)
-                    .orElseThrow(() -> new UserNotFoundException(id));
-
-            userRepository.delete(user);
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                UserModel user = userRepository.findByIdForUpdate(id)
+                        .orElseThrow(() -> new UserNotFoundException(id));
+                userRepository.delete(user);
+                uploadStore.updateReferences(user.getProfilePicture(), null);
+            });
+            suggestionService.followChanged(id); // Before the graph forgets who followed this user
+            followGraph.removeUser(id);
+            feedService.followingChanged(id);
             return ResponseEntity.ok(Map.of("message", "User deleted successfully"));
         } catch (UserNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -248,39 +299,39 @@ public class UserController {
     }
 
     @GetMapping("/uploads/profile-pictures/{filename}")
-    public ResponseEntity<org.springframework.core.io.Resource> getProfilePicture(@PathVariable String filename) {
+    public void getProfilePicture(@PathVariable String filename,
+                                  @RequestParam(required = false) String size,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) {
         try {
-            Path filePath = Paths.get(UPLOAD_DIR + filename);
-            org.springframework.core.io.Resource resource = new org.springframework.core.io.FileSystemResource(filePath.toFile());
-            
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                    .contentType(org.springframework.http.MediaType.IMAGE_JPEG)
-                    .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
+            // Pictures uploaded before the shared store live in the old profile-pictures folder
+            fileServingService.serveUpload(filename, size, Paths.get(UPLOAD_DIR), request, response);
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
         }
     }
 
+    // One insert against the (follower_id, following_id) unique key; following twice is not an error
     @PostMapping("/user/{followerId}/follow/{followingId}")
     public ResponseEntity<?> followUser(@PathVariable Long followerId, @PathVariable Long followingId) {
         try {
-            UserModel follower = userRepository.findById(followerId)
-                    .orElseThrow(() -> new RuntimeException("Follower not found"));
-            UserModel following = userRepository.findById(followingId)
-                    .orElseThrow(() -> new RuntimeException("User to follow not found"));
-
-            if (userFollowRepository.findByFollowerAndFollowing(follower, following).isPresent()) {
-                return ResponseEntity.badRequest().body(Map.of("message", "Already following this user"));
+            try {
+                userFollowRepository.insertIfAbsent(followerId, followingId);
+            } catch (DataIntegrityViolationException e) {
+                if (!userRepository.existsById(followerId) || !userRepository.existsById(followingId)) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("message", "User not found"));
+                }
+                throw e;
             }
-
-            UserFollow userFollow = new UserFollow(follower, following);
-            userFollowRepository.save(userFollow);
-
+            // The driver reports the same row count for a duplicate, so the follow graph tells whether it is new
+            if (!followGraph.follow(followerId, followingId)) {
+                return ResponseEntity.ok(Map.of("message", "Already following this user"));
+            }
+            followCounters.followed(followerId, followingId);
+            feedService.followingChanged(followerId);
+            suggestionService.followChanged(followerId);
             return ResponseEntity.ok(Map.of("message", "Successfully followed user"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
@@ -298,39 +349,20 @@ public class UserController {
                         .body(Map.of("message", "Invalid user IDs provided"));
             }
 
-            // Check if both users exist
-            UserModel follower = userRepository.findById(followerId)
-                    .orElseThrow(() -> new UserNotFoundException("Follower not found with ID: " + followerId));
-            UserModel following = userRepository.findById(followingId)
-                    .orElseThrow(() -> new UserNotFoundException("Following user not found with ID: " + followingId));
-
-            // Check if the follow relationship exists
-            Optional<UserFollow> existingFollow = userFollowRepository.findByFollowerAndFollowing(follower, following);
-            if (!existingFollow.isPresent()) {
+            if (userFollowRepository.deleteByIds(followerId, followingId) == 0) {
                 return ResponseEntity.badRequest()
                         .body(Map.of("message", "You are not following this user"));
             }
-
-            try {
-                // Delete the follow relationship using the existing follow record
-                userFollowRepository.delete(existingFollow.get());
-                return ResponseEntity.ok(Map.of("message", "Successfully unfollowed user"));
-            } catch (Exception e) {
-                e.printStackTrace();
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(Map.of(
-                            "message", "Failed to delete follow relationship",
-                            "error", e.getMessage()
-                        ));
-            }
-        } catch (UserNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("message", e.getMessage()));
+            followGraph.unfollow(followerId, followingId);
+            followCounters.unfollowed(followerId, followingId);
+            feedService.followingChanged(followerId);
+            suggestionService.followChanged(followerId);
+            return ResponseEntity.ok(Map.of("message", "Successfully unfollowed user"));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of(
-                        "message", "An unexpected error occurred",
+                        "message", "Failed to delete follow relationship",
                         "error", e.getMessage()
                     ));
         }
@@ -339,9 +371,7 @@ public class UserController {
     @GetMapping("/user/{userId}/following")
     public ResponseEntity<?> getFollowing(@PathVariable Long userId) {
         try {
-            List<UserModel> following = userFollowRepository.findFollowingByFollowerId(userId);
-            following.forEach(user -> user.setPassword(null));
-            return ResponseEntity.ok(following);
+            return ResponseEntity.ok(usersInOrder(followGraph.following(userId)));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("message", "Error getting following list: " + e.getMessage()));
@@ -351,33 +381,166 @@ public class UserController {
     @GetMapping("/user/{userId}/followers")
     public ResponseEntity<?> getFollowers(@PathVariable Long userId) {
         try {
-            List<UserModel> followers = userFollowRepository.findFollowersByFollowingId(userId);
-            followers.forEach(user -> user.setPassword(null));
-            return ResponseEntity.ok(followers);
+            return ResponseEntity.ok(usersInOrder(followGraph.followers(userId)));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("message", "Error getting followers list: " + e.getMessage()));
         }
     }
 
+    // Keyset pages of following/followers; totals come from the in-memory follow graph
+    @GetMapping(value = "/user/{userId}/following", params = "limit")
+    public Map<String, Object> getFollowingPage(@PathVariable Long userId,
+                                                @RequestParam(defaultValue = "0") Long after,
+                                                @RequestParam int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return page(userFollowRepository.findFollowingSummariesAfter(userId, after, Limit.of(pageSize)),
+                pageSize, followGraph.followingCount(userId));
+    }
+
+    @GetMapping(value = "/user/{userId}/followers", params = "limit")
+    public Map<String, Object> getFollowersPage(@PathVariable Long userId,
+                                                @RequestParam(defaultValue = "0") Long after,
+                                                @RequestParam int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return page(userFollowRepository.findFollowerSummariesAfter(userId, after, Limit.of(pageSize)),
+                pageSize, followGraph.followerCount(userId));
+    }
+
+    // Same source as the counts in GET /user/{id}, so the two endpoints never disagree
+    @GetMapping("/user/{userId}/follow-counts")
+    public ResponseEntity<?> getFollowCounts(@PathVariable Long userId) {
+        return followCounters.counts(userId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("message", new UserNotFoundException(userId).getMessage())));
+    }
+
+    // Answered from the in-memory follow graph; unknown users simply follow nobody
     @GetMapping("/user/{userId}/is-following/{targetId}")
     public ResponseEntity<?> isFollowing(
             @PathVariable Long userId,
             @PathVariable Long targetId) {
-        try {
-            UserModel follower = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException(userId));
-            UserModel following = userRepository.findById(targetId)
-                    .orElseThrow(() -> new UserNotFoundException(targetId));
+        return ResponseEntity.ok(Map.of("isFollowing", followGraph.isFollowing(userId, targetId)));
+    }
+
+    // Recipes by the users this user follows, newest first; "before" is the nextCursor of the previous page
+    @GetMapping("/user/{userId}/feed")
+    public FeedService.FeedPage getFeed(@PathVariable Long userId,
+                                        @RequestParam(defaultValue = "" + Long.MAX_VALUE) Long before,
+                                        @RequestParam(defaultValue = "20") int limit) {
+        return feedService.page(userId, before, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    // Users followed by the people this user follows, most mutual connections first
+    @GetMapping("/user/{userId}/suggestions")
+    public List<Map<String, Object>> getSuggestions(@PathVariable Long userId,
+                                                    @RequestParam(defaultValue = "10") int limit) {
+        List<SuggestionService.Suggestion> suggestions = suggestionService.suggestions(
+                userId, Math.max(1, Math.min(limit, SuggestionService.MAX_SUGGESTIONS)));
+        long[] ids = new long[suggestions.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = suggestions.get(i).userId();
+        }
+        Map<Long, Integer> mutualCounts = new HashMap<>();
+        suggestions.forEach(suggestion -> mutualCounts.put(suggestion.userId(), suggestion.mutualCount()));
 
-            boolean isFollowing = userFollowRepository.findByFollowerAndFollowing(follower, following).isPresent();
-            return ResponseEntity.ok(Map.of("isFollowing", isFollowing));
+        List<Map<String, Object>> response = new ArrayList<>();
+        for (UserSummary user : usersInOrder(ids)) {
+            response.add(Map.of("user", user, "mutualCount", mutualCounts.get(user.id())));
+        }
+        return response;
+    }
+
+    // Follow states for a whole page of users in one request, keyed by target id
+    @PostMapping("/user/{userId}/is-following")
+    public ResponseEntity<?> isFollowingAny(@PathVariable Long userId, @RequestBody List<Long> targetIds) {
+        String invalid = invalidTargets(targetIds);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(Map.of("message", invalid));
+        }
+        long[] ids = new long[targetIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = targetIds.get(i);
+        }
+        boolean[] following = followGraph.isFollowing(userId, ids);
+        Map<Long, Boolean> result = new LinkedHashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            result.put(ids[i], following[i]);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    private static Map<String, Object> page(List<UserSummary> users, int pageSize, long total) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", users);
+        response.put("nextCursor", users.size() < pageSize ? null : users.get(users.size() - 1).id());
+        response.put("total", total);
+        return response;
+    }
+
+    // Onboarding "follow these cooks": all targets validated and written together, with a result per target
+    @PostMapping("/user/{followerId}/follow")
+    public ResponseEntity<?> followUsers(@PathVariable Long followerId, @RequestBody List<Long> targetIds) {
+        String invalid = invalidTargets(targetIds);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(Map.of("message", invalid));
+        }
+        try {
+            return ResponseEntity.ok(Map.of("results", followBatchService.follow(followerId, targetIds)));
         } catch (UserNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("message", "Error checking follow status: " + e.getMessage()));
+                    .body(Map.of("message", "Error following users: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/user/{followerId}/unfollow")
+    public ResponseEntity<?> unfollowUsers(@PathVariable Long followerId, @RequestBody List<Long> targetIds) {
+        String invalid = invalidTargets(targetIds);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(Map.of("message", invalid));
+        }
+        try {
+            return ResponseEntity.ok(Map.of("results", followBatchService.unfollow(followerId, targetIds)));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Error unfollowing users: " + e.getMessage()));
+        }
+    }
+
+    private static String invalidTargets(List<Long> targetIds) {
+        if (targetIds.size() > MAX_FOLLOW_BATCH) {
+            return "At most " + MAX_FOLLOW_BATCH + " target ids per request";
+        }
+        if (targetIds.contains(null)) {
+            return "Target ids must not be null";
+        }
+        return null;
+    }
+
+    // Loads the given users in one projection query, keeping the order of the ids
+    private List<UserSummary> usersInOrder(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            idList.add(id);
+        }
+        Map<Long, UserSummary> byId = new HashMap<>();
+        for (UserSummary user : userRepository.findSummariesByIdIn(idList)) {
+            byId.put(user.id(), user);
+        }
+        List<UserSummary> users = new ArrayList<>(ids.length);
+        for (Long id : idList) {
+            UserSummary user = byId.get(id);
+            if (user != null) {
+                users.add(user);
+            }
         }
+        return users;
     }
 }
@@ -1,19 +1,46 @@
 package backend.controller;
 
 import backend.exception.cookingPlanNotFoundException;
+import backend.model.RecipeManagementModel;
 import backend.model.cookingPlansModel;
+import backend.repository.RecipeManagementRepository;
 import backend.repository.cookingPlansRepository;
+import backend.service.EntityCache;
+import backend.service.ExportService;
+import backend.service.FileServingService;
+import backend.service.ImageDerivativeService;
+import backend.service.PlanTypeFacets;
+import backend.service.ShoppingListService;
+import backend.service.TableChangeCounter;
+import backend.service.UploadStore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @CrossOrigin(origins = "*") // Allows requests from all origins
@@ -23,95 +50,297 @@ public class cookingPlansController {
     @Autowired
     private cookingPlansRepository cookingPlansRepository;
 
+    @Autowired
+    private EntityCache<Long, cookingPlansModel> cookingPlanCache;
+
+    @Autowired
+    private TableChangeCounter tableChangeCounter;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private FileServingService fileServingService;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Autowired
+    private RecipeManagementRepository recipeManagementRepository;
+
+    @Autowired
+    private EntityCache<Long, RecipeManagementModel> recipeCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShoppingListService shoppingListService;
+
+    @Autowired
+    private PlanTypeFacets planTypeFacets;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     @PostMapping
     public cookingPlansModel newCookingPlansModel(@RequestBody cookingPlansModel newCookingPlansModel) {
-        return cookingPlansRepository.save(newCookingPlansModel);
+        linkRecipes(newCookingPlansModel);
+        cookingPlansModel savedPlan = cookingPlansRepository.save(newCookingPlansModel);
+        planTypeFacets.created(savedPlan.getPlanType());
+        uploadStore.updateReferences(null, savedPlan.getPlanImage());
+        onPlanChanged(savedPlan.getPlanId());
+        return savedPlan;
     }
 
     @PostMapping("/planImg")
     public String planImage(@RequestParam("file") MultipartFile file) {
-        String folder = "src/main/resources/static/uploads/"; // Updated to static folder
-        String fileName = file.getOriginalFilename();
-        File uploadDir = new File(folder);
-
-        if (!uploadDir.exists()) {
-            uploadDir.mkdirs(); // Creates directory if it doesn't exist
-        }
-
         try {
-            Path filePath = Paths.get(folder + fileName);
-            file.transferTo(filePath);
-            return "{\"filename\": \"" + fileName + "\"}"; // JSON response
+            UploadStore.StoredFile stored = uploadStore.store(file.getInputStream(), file.getOriginalFilename());
+            if (stored.created()) {
+                imageDerivativeService.submit(stored.key());
+            }
+            return "{\"filename\": \"" + stored.fileName() + "\"}"; // JSON response
         } catch (IOException e) {
             e.printStackTrace();
             return "{\"error\": \"Error uploading file\"}";
         }
     }
 
+    // One page of plans, optionally of a single type; totals come from the in-memory facet counts
+    @GetMapping
+    public Map<String, Object> getPlansPage(@RequestParam(required = false) String type,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") int size,
+                                            WebRequest request) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        String planType = type == null || type.isBlank() ? null : type.trim();
+        if (request.checkNotModified(tableChangeCounter.listTag(TableChangeCounter.COOKING_PLANS)
+                + "-" + (planType == null ? "" : Integer.toHexString(planType.hashCode())) + "-" + pageNumber + "-" + pageSize)) {
+            return null;
+        }
+
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize);
+        List<cookingPlansModel> plans = planType == null
+                ? cookingPlansRepository.findAllByOrderByPlanIdAsc(pageRequest)
+                : cookingPlansRepository.findByPlanTypeOrderByPlanIdAsc(planType, pageRequest);
+        long total = planTypeFacets.count(planType);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("items", plans);
+        response.put("type", planType);
+        response.put("page", pageNumber);
+        response.put("size", pageSize);
+        response.put("total", total);
+        response.put("totalPages", (total + pageSize - 1) / pageSize);
+        return response;
+    }
+
+    // Plan counts per planType
+    @GetMapping("/facets")
+    public Map<String, Object> getPlanFacets() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("total", planTypeFacets.count(null));
+        response.put("planType", planTypeFacets.snapshot());
+        return response;
+    }
+
     @GetMapping("/cookingPlans")
-    public List<cookingPlansModel> getAllItems() {
+    public List<cookingPlansModel> getAllItems(WebRequest request) {
+        if (request.checkNotModified(tableChangeCounter.listTag(TableChangeCounter.COOKING_PLANS))) {
+            return null;
+        }
         return cookingPlansRepository.findAll();
     }
 
-    @GetMapping("/cookingPlans/{id}")
-    public cookingPlansModel getItemId(@PathVariable Long id) {
-        return cookingPlansRepository.findById(id).orElseThrow(() -> new cookingPlanNotFoundException(id));
+    // Single plan; expand=recipes embeds summaries of its recipes, loaded from cache or one IN query
+    @GetMapping({"/cookingPlans/{id}", "/{id}"})
+    public ResponseEntity<?> getItemId(@PathVariable Long id,
+                                       @RequestParam(required = false) String expand,
+                                       WebRequest request) {
+        cookingPlansModel plan = cookingPlanCache.get(id, cookingPlansRepository::findById)
+                .orElseThrow(() -> new cookingPlanNotFoundException(id));
+        String etag = TableChangeCounter.entityTag(TableChangeCounter.COOKING_PLANS, id, plan.getVersion());
+        if (!"recipes".equals(expand)) {
+            return request.checkNotModified(etag) ? null : ResponseEntity.ok(plan);
+        }
+
+        List<Long> recipeIds = plan.getRecipeIds() != null ? plan.getRecipeIds() : List.of();
+        Map<Long, RecipeManagementModel> recipesById = recipeCache.getAll(recipeIds, ids ->
+                recipeManagementRepository.findAllById(ids).stream()
+                        .collect(Collectors.toMap(RecipeManagementModel::getRecipeId, Function.identity())));
+
+        // The response changes when the plan or any of its recipes does
+        StringBuilder versions = new StringBuilder();
+        List<Map<String, Object>> recipes = new ArrayList<>();
+        for (Long recipeId : recipeIds) {
+            RecipeManagementModel recipe = recipesById.get(recipeId);
+            if (recipe == null) {
+                continue; // Deleted since it was added to the plan
+            }
+            versions.append(recipeId).append(':').append(recipe.getVersion()).append(',');
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("recipeId", recipe.getRecipeId());
+            summary.put("title", recipe.getTitle());
+            summary.put("description", recipe.getDescription());
+            String images = recipe.getImages();
+            summary.put("image", images == null || images.isBlank() ? null : images.split(",")[0].trim());
+            recipes.add(summary);
+        }
+        if (request.checkNotModified(etag + "-" + Integer.toHexString(versions.toString().hashCode()))) {
+            return null;
+        }
+
+        Map<String, Object> response = objectMapper.convertValue(plan, new TypeReference<LinkedHashMap<String, Object>>() {});
+        response.put("recipes", recipes);
+        return ResponseEntity.ok(response);
     }
 
-    private final String UPLOAD_DIR = "src/main/resources/static/uploads/"; // Corrected path for serving files
-    @GetMapping("/uploads/{filename}")
-    public ResponseEntity<FileSystemResource> getImage(@PathVariable String filename) {
-        File file = new File(UPLOAD_DIR + filename); // Serving the file from static folder
-        if (!file.exists()) {
-            return ResponseEntity.notFound().build();
+    // One merged shopping list for every recipe in the plan
+    @GetMapping("/{id}/shopping-list")
+    public ShoppingListService.ShoppingList getShoppingList(@PathVariable Long id, WebRequest request) {
+        cookingPlansModel plan = cookingPlanCache.get(id, cookingPlansRepository::findById)
+                .orElseThrow(() -> new cookingPlanNotFoundException(id));
+        ShoppingListService.ShoppingList shoppingList = shoppingListService.forPlan(plan);
+        if (request.checkNotModified(TableChangeCounter.entityTag(TableChangeCounter.COOKING_PLANS, id, plan.getVersion())
+                + "-" + Integer.toHexString(shoppingList.fingerprint().hashCode()))) {
+            return null;
         }
-        return ResponseEntity.ok(new FileSystemResource(file));
+        return shoppingList;
+    }
+
+    // Export all plans as NDJSON or CSV, gzipped when the client accepts it
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCookingPlans(@RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return exportService.exportResponse(ExportService.Dataset.COOKING_PLANS, format, acceptEncoding);
+    }
+
+    private static final Path LEGACY_UPLOAD_DIR = Paths.get("src/main/resources/static/uploads/"); // Files saved before the upload store
+    @GetMapping("/uploads/{filename}")
+    public void getImage(@PathVariable String filename,
+                         @RequestParam(required = false) String size,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        fileServingService.serveUpload(filename, size, LEGACY_UPLOAD_DIR, request, response);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCookingPlan(@PathVariable Long id) {
-        if (cookingPlansRepository.existsById(id)) {
-            cookingPlansRepository.deleteById(id);
-            return ResponseEntity.noContent().build();
+        cookingPlansModel deleted = new TransactionTemplate(transactionManager).execute(status ->
+                cookingPlansRepository.findByIdForUpdate(id)
+                        .map(plan -> {
+                            cookingPlansRepository.delete(plan);
+                            uploadStore.updateReferences(plan.getPlanImage(), null);
+                            return plan;
+                        })
+                        .orElse(null));
+        if (deleted == null) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
+        planTypeFacets.deleted(deleted.getPlanType());
+        onPlanChanged(id);
+        return ResponseEntity.noContent().build();
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<cookingPlansModel> updateCookingPlan(@PathVariable Long id, @RequestBody cookingPlansModel updatedPlan) {
-        return cookingPlansRepository.findById(id)
-                .map(plan -> {
-                    plan.setPlanName(updatedPlan.getPlanName());
-                    plan.setPlanType(updatedPlan.getPlanType());
-                    plan.setPlanDescription(updatedPlan.getPlanDescription());
-                    plan.setPlanRecipes(updatedPlan.getPlanRecipes());
-                    plan.setPlanImage(updatedPlan.getPlanImage());
-                    return ResponseEntity.ok(cookingPlansRepository.save(plan));
-                })
-                .orElseGet(() -> ResponseEntity.notFound().build());
+        cookingPlansModel savedPlan = new TransactionTemplate(transactionManager).execute(status ->
+                cookingPlansRepository.findByIdForUpdate(id)
+                        .map(plan -> {
+                            String previousImage = plan.getPlanImage();
+                            String previousType = plan.getPlanType();
+                            plan.setPlanName(updatedPlan.getPlanName());
+                            plan.setPlanType(updatedPlan.getPlanType());
+                            plan.setPlanDescription(updatedPlan.getPlanDescription());
+                            plan.setPlanRecipes(updatedPlan.getPlanRecipes());
+                            plan.setPlanImage(updatedPlan.getPlanImage());
+                            plan.getRecipeIds().clear();
+                            if (updatedPlan.getRecipeIds() != null) {
+                                plan.getRecipeIds().addAll(updatedPlan.getRecipeIds());
+                            }
+                            linkRecipes(plan);
+                            cookingPlansModel saved = cookingPlansRepository.save(plan);
+                            uploadStore.updateReferences(previousImage, saved.getPlanImage());
+                            planTypeFacets.updated(previousType, saved.getPlanType());
+                            return saved;
+                        })
+                        .orElse(null));
+        if (savedPlan == null) {
+            return ResponseEntity.notFound().build();
+        }
+        onPlanChanged(id);
+        return ResponseEntity.ok(savedPlan);
     }
 
     @PutMapping("/{id}/image")
     public ResponseEntity<?> updatePlanImage(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
-        return cookingPlansRepository.findById(id).map(plan -> {
-            String folder = "src/main/resources/static/uploads/";
-            String fileName = file.getOriginalFilename();
+        // Not loaded here: the row is read under its lock below, and a copy loaded now would be returned instead
+        if (!cookingPlansRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            UploadStore.StoredFile stored = uploadStore.store(file.getInputStream(), file.getOriginalFilename());
+            if (stored.created()) {
+                imageDerivativeService.submit(stored.key());
+            }
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    cookingPlansRepository.findByIdForUpdate(id).ifPresent(locked -> {
+                        String previousImage = locked.getPlanImage();
+                        locked.setPlanImage(stored.fileName());
+                        cookingPlansRepository.save(locked); // Save updated plan
+                        uploadStore.updateReferences(previousImage, stored.fileName());
+                    }));
+            onPlanChanged(id);
+            return ResponseEntity.ok("{\"message\": \"Image updated successfully\", \"filename\": \"" + stored.fileName() + "\"}");
+        } catch (IOException e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("{\"error\": \"Failed to upload image\"}");
+        }
+    }
 
-            File uploadDir = new File(folder);
-            if (!uploadDir.exists()) {
-                uploadDir.mkdirs();
+    // Plans saved without recipeIds get them from planRecipes: numeric entries are ids, others are matched by title
+    private void linkRecipes(cookingPlansModel plan) {
+        if (plan.getRecipeIds() == null) {
+            plan.setRecipeIds(new ArrayList<>());
+        }
+        if (!plan.getRecipeIds().isEmpty() || plan.getPlanRecipes() == null || plan.getPlanRecipes().isBlank()) {
+            return;
+        }
+
+        List<String> entries = new ArrayList<>();
+        for (String entry : plan.getPlanRecipes().split("[,;\\n]")) {
+            if (!entry.isBlank()) {
+                entries.add(entry.trim());
+            }
+        }
+        List<String> titles = entries.stream().filter(entry -> !entry.matches("\\d{1,18}")).toList();
+        Map<String, Long> idsByTitle = new HashMap<>();
+        if (!titles.isEmpty()) {
+            for (Object[] row : recipeManagementRepository.findIdsByTitleIn(titles)) {
+                idsByTitle.putIfAbsent(((String) row[1]).toLowerCase(Locale.ROOT), (Long) row[0]);
             }
+        }
 
-            try {
-                Path filePath = Paths.get(folder + fileName);
-                file.transferTo(filePath);
-                plan.setPlanImage(fileName);
-                cookingPlansRepository.save(plan); // Save updated plan
-                return ResponseEntity.ok("{\"message\": \"Image updated successfully\", \"filename\": \"" + fileName + "\"}");
-            } catch (IOException e) {
-                e.printStackTrace();
-                return ResponseEntity.status(500).body("{\"error\": \"Failed to upload image\"}");
+        Set<Long> recipeIds = new LinkedHashSet<>();
+        for (String entry : entries) {
+            Long recipeId = entry.matches("\\d{1,18}") ? Long.valueOf(entry) : idsByTitle.get(entry.toLowerCase(Locale.ROOT));
+            if (recipeId != null) {
+                recipeIds.add(recipeId);
             }
-        }).orElseGet(() -> ResponseEntity.notFound().build());
+        }
+        plan.getRecipeIds().addAll(recipeIds);
+    }
+
+    private void onPlanChanged(Long id) {
+        cookingPlanCache.invalidate(id);
+        shoppingListService.invalidate(id);
+        tableChangeCounter.changed(TableChangeCounter.COOKING_PLANS);
     }
 }
@@ -0,0 +1,7 @@
+package backend.exception;
+
+public class UploadSessionNotFoundException extends RuntimeException {
+    public UploadSessionNotFoundException(String sessionId) {
+        super("Could not find upload session " + sessionId);
+    }
+}
@@ -1,11 +1,20 @@
 package backend.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = @Index(name = "idx_recipe_author_id", columnList = "author_id, recipe_id"))
 public class RecipeManagementModel {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -16,6 +25,10 @@ public class RecipeManagementModel {
     private String steps;
     private String images;  // Store up to 3 images as a comma-separated list of image URLs
     private String video;   // Store video URL (optional)
+    private Long authorId;  // Id of the user who created the recipe; null for recipes from before authors were recorded
+
+    @Version
+    private long version;
 
     public RecipeManagementModel() {}
 
@@ -84,4 +97,20 @@ public class RecipeManagementModel {
     public void setVideo(String video) {
         this.video = video;
     }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
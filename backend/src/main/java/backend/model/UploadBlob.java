@@ -0,0 +1,67 @@
+package backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+// One stored upload, keyed by the SHA-256 of its content
+@Entity
+public class UploadBlob {
+    @Id
+    @Column(length = 64)
+    private String digest;
+    private String fileName;
+    private long size;
+    private int refCount;     // Number of recipes, plans and users pointing at this file
+    private long lastStoredAt; // Last time this content was uploaded, in epoch millis
+
+    public UploadBlob() {
+    }
+
+    public UploadBlob(String digest, String fileName, long size, long lastStoredAt) {
+        this.digest = digest;
+        this.fileName = fileName;
+        this.size = size;
+        this.lastStoredAt = lastStoredAt;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public long getLastStoredAt() {
+        return lastStoredAt;
+    }
+
+    public void setLastStoredAt(long lastStoredAt) {
+        this.lastStoredAt = lastStoredAt;
+    }
+}
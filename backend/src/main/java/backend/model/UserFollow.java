@@ -3,9 +3,11 @@ package backend.model;
 import jakarta.persistence.*;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_user_follow_pair", columnNames = {"follower_id", "following_id"}),
+        indexes = @Index(name = "idx_user_follow_following_follower", columnList = "following_id, follower_id"))
 public class UserFollow {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @ManyToOne
@@ -1,5 +1,6 @@
 package backend.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
@@ -15,6 +16,13 @@ public class UserModel {
     private String phone;
     private String profilePicture;
 
+    // Maintained by FollowCounters with relative updates, so saving a loaded user must never write them back
+    @Column(columnDefinition = "bigint not null default 0", insertable = false, updatable = false)
+    private long followerCount;
+
+    @Column(columnDefinition = "bigint not null default 0", insertable = false, updatable = false)
+    private long followingCount;
+
     public UserModel() {
     }
 
@@ -65,4 +73,20 @@ public class UserModel {
     public void setProfilePicture(String profilePicture) {
         this.profilePicture = profilePicture;
     }
+
+    public long getFollowerCount() {
+        return followerCount;
+    }
+
+    public void setFollowerCount(long followerCount) {
+        this.followerCount = followerCount;
+    }
+
+    public long getFollowingCount() {
+        return followingCount;
+    }
+
+    public void setFollowingCount(long followingCount) {
+        this.followingCount = followingCount;
+    }
 }
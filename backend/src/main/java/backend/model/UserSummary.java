@@ -0,0 +1,5 @@
+package backend.model;
+
+// Public view of a user for lists; selected straight from the table so the password column is never read
+public record UserSummary(Long id, String fullname, String email, String phone, String profilePicture) {
+}
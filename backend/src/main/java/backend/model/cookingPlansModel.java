@@ -1,11 +1,31 @@
 package backend.model;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OrderColumn;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_cooking_plans_type_id", columnList = "plan_type, plan_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class cookingPlansModel {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -16,6 +36,18 @@ public class cookingPlansModel {
     private String planRecipes;
     private String planImage;
 
+    // Recipes in the plan, in order; planRecipes stays as the free-text label the frontend edits
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "cooking_plan_recipes", joinColumns = @JoinColumn(name = "plan_id"))
+    @OrderColumn(name = "position")
+    @Column(name = "recipe_id")
+    @Fetch(FetchMode.SUBSELECT)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    private List<Long> recipeIds = new ArrayList<>();
+
+    @Version
+    private long version;
+
     public cookingPlansModel() {}
 
     public cookingPlansModel(Long planId, String planName, String planType, String planDescription, String planRecipes, String planImage) {
@@ -74,4 +106,20 @@ public class cookingPlansModel {
     public void setPlanImage(String planImage) {
         this.planImage = planImage;
     }
+
+    public List<Long> getRecipeIds() {
+        return recipeIds;
+    }
+
+    public void setRecipeIds(List<Long> recipeIds) {
+        this.recipeIds = recipeIds;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -1,11 +1,46 @@
 package backend.repository;
 
 import backend.model.RecipeManagementModel;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface RecipeManagementRepository extends JpaRepository<RecipeManagementModel, Long> {
+public interface RecipeManagementRepository extends JpaRepository<RecipeManagementModel, Long>, RecipeManagementRepositoryCustom {
     // You can add custom query methods here if needed, for example:
     // List<RecipeManagementModel> findByTitleContaining(String title);
+
+    // Keyset page: recipes after the given id, in id order
+    List<RecipeManagementModel> findByRecipeIdGreaterThanOrderByRecipeIdAsc(Long after, Limit limit);
+
+    // Id and title of the recipes with any of the given titles, for resolving plan recipe names
+    @Query("SELECT r.recipeId, r.title FROM RecipeManagementModel r WHERE r.title IN ?1")
+    List<Object[]> findIdsByTitleIn(Collection<String> titles);
+
+    // Newest recipe ids by any of the given authors below the cursor; walks idx_recipe_author_id per author
+    @Query("SELECT r.recipeId FROM RecipeManagementModel r WHERE r.authorId IN ?1 AND r.recipeId < ?2 ORDER BY r.recipeId DESC")
+    List<Long> findIdsByAuthorIdInBefore(Collection<Long> authorIds, Long before, Limit limit);
+
+    // Locks the row until the surrounding transaction ends, so concurrent edits read each other's upload references
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM RecipeManagementModel r WHERE r.recipeId = ?1")
+    Optional<RecipeManagementModel> findByIdForUpdate(Long id);
+
+    // Row-by-row stream; Integer.MIN_VALUE makes the MySQL driver stream instead of buffering the result set
+    @Query("SELECT r FROM RecipeManagementModel r ORDER BY r.recipeId")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "-2147483648"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<RecipeManagementModel> streamAllOrderByRecipeId();
 }
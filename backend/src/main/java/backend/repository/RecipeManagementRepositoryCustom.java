@@ -0,0 +1,14 @@
+package backend.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface RecipeManagementRepositoryCustom {
+
+    Set<String> SELECTABLE_FIELDS = Set.of(
+            "recipeId", "title", "description", "ingredients", "steps", "images", "image", "video", "authorId", "version");
+
+    // Selects only the requested recipe columns for a keyset page; "image" is the first entry of images
+    List<Map<String, Object>> findFieldsAfter(Set<String> fields, Long after, int limit);
+}
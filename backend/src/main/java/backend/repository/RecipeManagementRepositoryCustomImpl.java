@@ -0,0 +1,60 @@
+package backend.repository;
+
+import backend.model.RecipeManagementModel;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class RecipeManagementRepositoryCustomImpl implements RecipeManagementRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFieldsAfter(Set<String> fields, Long after, int limit) {
+        // recipeId is always selected so callers can build the next cursor
+        Set<String> columns = new LinkedHashSet<>();
+        columns.add("recipeId");
+        for (String field : fields) {
+            columns.add("image".equals(field) ? "images" : field);
+        }
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<RecipeManagementModel> recipe = query.from(RecipeManagementModel.class);
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String column : columns) {
+            selections.add(recipe.get(column).alias(column));
+        }
+        query.multiselect(selections)
+                .where(builder.greaterThan(recipe.get("recipeId"), after))
+                .orderBy(builder.asc(recipe.get("recipeId")));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                if ("image".equals(field)) {
+                    String images = tuple.get("images", String.class);
+                    row.put("image", images == null || images.isBlank() ? null : images.split(",")[0].trim());
+                } else {
+                    row.put(field, tuple.get(field));
+                }
+            }
+            row.putIfAbsent("recipeId", tuple.get("recipeId"));
+            rows.add(row);
+        }
+        return rows;
+    }
+}
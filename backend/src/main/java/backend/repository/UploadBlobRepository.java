@@ -0,0 +1,34 @@
+package backend.repository;
+
+import backend.model.UploadBlob;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface UploadBlobRepository extends JpaRepository<UploadBlob, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadBlob b SET b.refCount = b.refCount + 1 WHERE b.digest = ?1")
+    int incrementRefCount(String digest);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadBlob b SET b.refCount = b.refCount - 1 WHERE b.digest = ?1 AND b.refCount > 0")
+    int decrementRefCount(String digest);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadBlob b SET b.lastStoredAt = ?2 WHERE b.digest = ?1")
+    int touch(String digest, long lastStoredAt);
+
+    // Unreferenced blobs not uploaded again since the cutoff, in digest order so callers can page past skipped ones
+    @Query("SELECT b FROM UploadBlob b WHERE b.refCount = 0 AND b.lastStoredAt < ?1 AND b.digest > ?2 ORDER BY b.digest")
+    List<UploadBlob> findUnreferencedAfter(long cutoff, String afterDigest, Limit limit);
+}
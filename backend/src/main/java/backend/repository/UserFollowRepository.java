@@ -2,12 +2,19 @@ package backend.repository;
 
 import backend.model.UserFollow;
 import backend.model.UserModel;
+import backend.model.UserSummary;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserFollowRepository extends JpaRepository<UserFollow, Long> {
@@ -20,4 +27,35 @@ public interface UserFollowRepository extends JpaRepository<UserFollow, Long> {
     List<UserModel> findFollowersByFollowingId(Long followingId);
     
     void deleteByFollowerAndFollowing(UserModel follower, UserModel following);
-} 
\ No newline at end of file
+
+    // Keyset page of the users someone follows; walks uk_user_follow_pair (follower_id, following_id)
+    @Query("SELECT new backend.model.UserSummary(f.id, f.fullname, f.email, f.phone, f.profilePicture) "
+            + "FROM UserFollow uf JOIN uf.following f WHERE uf.follower.id = ?1 AND f.id > ?2 ORDER BY f.id")
+    List<UserSummary> findFollowingSummariesAfter(Long followerId, Long after, Limit limit);
+
+    // Keyset page of someone's followers; walks idx_user_follow_following_follower (following_id, follower_id)
+    @Query("SELECT new backend.model.UserSummary(f.id, f.fullname, f.email, f.phone, f.profilePicture) "
+            + "FROM UserFollow uf JOIN uf.follower f WHERE uf.following.id = ?1 AND f.id > ?2 ORDER BY f.id")
+    List<UserSummary> findFollowerSummariesAfter(Long followingId, Long after, Limit limit);
+
+    // Adds the follow unless uk_user_follow_pair already has it; unlike INSERT IGNORE, a missing user
+    // (foreign key) or any other error still fails. Connector/J reports 1 row either way
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_follow (follower_id, following_id) VALUES (?1, ?2) "
+            + "ON DUPLICATE KEY UPDATE id = id", nativeQuery = true)
+    int insertIfAbsent(Long followerId, Long followingId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserFollow uf WHERE uf.follower.id = ?1 AND uf.following.id = ?2")
+    int deleteByIds(Long followerId, Long followingId);
+
+    // (followerId, followingId) for every follow, streamed without loading either user
+    @Query("SELECT uf.follower.id, uf.following.id FROM UserFollow uf")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "-2147483648"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<Object[]> streamAllPairs();
+}
@@ -2,11 +2,34 @@ package backend.repository;
 
 
 import backend.model.UserModel;
+import backend.model.UserSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<UserModel, Long> {
     Optional<UserModel> findByEmail (String email);
 
+    // Locks the row until the surrounding transaction ends, so concurrent edits read each other's upload references
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM UserModel u WHERE u.id = ?1")
+    Optional<UserModel> findByIdForUpdate(Long id);
+
+    // Keyset page: users after the given id, in id order
+    @Query("SELECT new backend.model.UserSummary(u.id, u.fullname, u.email, u.phone, u.profilePicture) "
+            + "FROM UserModel u WHERE u.id > ?1 ORDER BY u.id")
+    List<UserSummary> findSummariesAfter(Long after, Limit limit);
+
+    @Query("SELECT u.id FROM UserModel u WHERE u.id IN ?1")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Query("SELECT new backend.model.UserSummary(u.id, u.fullname, u.email, u.phone, u.profilePicture) "
+            + "FROM UserModel u WHERE u.id IN ?1")
+    List<UserSummary> findSummariesByIdIn(Collection<Long> ids);
 }
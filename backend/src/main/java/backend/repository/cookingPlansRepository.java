@@ -1,9 +1,30 @@
 package backend.repository;
 
 import backend.model.cookingPlansModel;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface cookingPlansRepository extends JpaRepository<cookingPlansModel, Long> {
+
+    // Pages of one plan type, served by the (plan_type, plan_id) index
+    List<cookingPlansModel> findByPlanTypeOrderByPlanIdAsc(String planType, Pageable pageable);
+
+    List<cookingPlansModel> findAllByOrderByPlanIdAsc(Pageable pageable);
+
+    // Locks the row until the surrounding transaction ends, so concurrent edits read each other's upload references
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM cookingPlansModel p WHERE p.planId = ?1")
+    Optional<cookingPlansModel> findByIdForUpdate(Long id);
+
+    // Only used to warm up and reconcile the in-memory facet counts
+    @Query("SELECT p.planType, COUNT(p) FROM cookingPlansModel p GROUP BY p.planType")
+    List<Object[]> countByPlanType();
 }
@@ -0,0 +1,26 @@
+package backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+
+// Where stored uploads physically live; keys are relative slash-separated paths such as "ab/cd/<digest>.jpg"
+public interface BlobBackend {
+
+    // Moves a finished local file into the backend; the source file is gone afterwards
+    void put(String key, Path source) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    // The file on local disk, when the backend has one; lets the server use sendfile
+    Optional<Path> localPath(String key);
+
+    // A URL clients can fetch the blob from directly, for backends without local files
+    Optional<URI> downloadUrl(String key);
+}
@@ -0,0 +1,291 @@
+package backend.service;
+
+import backend.exception.UploadSessionNotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Resumable uploads: each chunk is written at its offset into a preallocated file, then the file is moved into place
+@Service
+public class ChunkedUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Value("${app.media.session-dir:src/main/resources/upload-sessions/}")
+    private String sessionDir;
+
+    @Value("${app.media.max-size:2147483648}")
+    private long maxSize;
+
+    @Value("${app.media.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    // Persisted next to the partial file so a session can be resumed after a restart
+    public record SessionState(String id, String fileName, long size, long createdAt, List<long[]> receivedRanges) {
+    }
+
+    public record UploadStatus(String sessionId, String fileName, long size, long received, long nextOffset, boolean complete) {
+    }
+
+    public UploadStatus create(String fileName, long size) throws IOException {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+        if (size <= 0 || size > maxSize) {
+            throw new IllegalArgumentException("size must be between 1 and " + maxSize + " bytes");
+        }
+
+        String id = UUID.randomUUID().toString();
+        Files.createDirectories(Paths.get(sessionDir));
+        try (RandomAccessFile file = new RandomAccessFile(partialPath(id).toFile(), "rw")) {
+            file.setLength(size);
+        }
+
+        UploadSession session = new UploadSession(id, Paths.get(fileName).getFileName().toString(), size, System.currentTimeMillis());
+        sessions.put(id, session);
+        synchronized (session) {
+            persist(session);
+            return session.status();
+        }
+    }
+
+    public UploadStatus status(String id) throws IOException {
+        UploadSession session = session(id);
+        synchronized (session) {
+            return session.status();
+        }
+    }
+
+    // Streams one chunk from the request body straight into the file at the given offset
+    public UploadStatus writeChunk(String id, long offset, InputStream body) throws IOException {
+        UploadSession session = session(id);
+        if (offset < 0 || offset >= session.size) {
+            throw new IllegalArgumentException("offset must be between 0 and " + (session.size - 1));
+        }
+
+        long position = offset;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(partialPath(id), StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = body.read(buffer.array(), 0, BUFFER_SIZE)) != -1) {
+                if (position + read > session.size) {
+                    throw new IllegalArgumentException("chunk extends past the declared size of " + session.size + " bytes");
+                }
+                buffer.limit(read).position(0);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                buffer.clear();
+            }
+        } finally {
+            // Record whatever arrived, so a dropped connection resumes from here rather than from the chunk start;
+            // skipped if the session was completed, aborted or expired meanwhile, as persisting would resurrect it
+            if (position > offset) {
+                synchronized (session) {
+                    if (sessions.get(id) == session) {
+                        session.markReceived(offset, position);
+                        persist(session);
+                    }
+                }
+            }
+        }
+
+        synchronized (session) {
+            return session.status();
+        }
+    }
+
+    // Hands the completed file to the upload store, which keeps it unless identical content is already stored
+    public UploadStore.StoredFile complete(String id) throws IOException {
+        UploadSession session = session(id);
+        synchronized (session) {
+            if (!session.status().complete()) {
+                throw new IllegalStateException("upload is incomplete; next missing offset is " + session.nextOffset());
+            }
+            UploadStore.StoredFile stored = uploadStore.storeFile(partialPath(id), session.fileName);
+            discard(session.id);
+            return stored;
+        }
+    }
+
+    public void abort(String id) throws IOException {
+        UploadSession session = session(id);
+        synchronized (session) {
+            discard(session.id);
+        }
+    }
+
+    // Drop sessions nobody has touched within the TTL, and files a crash left without metadata
+    @Scheduled(fixedDelayString = "${app.media.cleanup-interval-ms:3600000}")
+    public void removeExpiredSessions() throws IOException {
+        Path dir = Paths.get(sessionDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(sessionTtlHours);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path metadata : files) {
+                if (Files.getLastModifiedTime(metadata).toMillis() < cutoff) {
+                    removeIfExpired(metadata.getFileName().toString().replace(".json", ""), cutoff);
+                }
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.{part,tmp}")) {
+            for (Path file : files) {
+                // Temp metadata only exists during a persist; a partial file needs its session
+                String id = file.getFileName().toString().replaceFirst("\\..*$", "");
+                boolean orphan = file.toString().endsWith(".tmp")
+                        || (!sessions.containsKey(id) && !Files.exists(metadataPath(id)));
+                if (orphan && Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // Under the session lock, so a chunk finishing meanwhile either lands before the discard or sees it
+    private void removeIfExpired(String id, long cutoff) throws IOException {
+        UploadSession session;
+        try {
+            session = session(id);
+        } catch (UploadSessionNotFoundException e) {
+            return;
+        }
+        synchronized (session) {
+            Path metadata = metadataPath(id);
+            if (sessions.get(id) == session && Files.exists(metadata)
+                    && Files.getLastModifiedTime(metadata).toMillis() < cutoff) {
+                discard(id);
+            }
+        }
+    }
+
+    private UploadSession session(String id) throws IOException {
+        UploadSession session = sessions.get(id);
+        if (session != null) {
+            return session;
+        }
+        // Not in memory (e.g. after a restart): reload it from its metadata file
+        Path metadata = metadataPath(id);
+        if (!isValidId(id) || !Files.exists(metadata)) {
+            throw new UploadSessionNotFoundException(id);
+        }
+        SessionState state = objectMapper.readValue(metadata.toFile(), SessionState.class);
+        UploadSession loaded = new UploadSession(state.id(), state.fileName(), state.size(), state.createdAt());
+        for (long[] range : state.receivedRanges()) {
+            loaded.markReceived(range[0], range[1]);
+        }
+        UploadSession existing = sessions.putIfAbsent(id, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private void persist(UploadSession session) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        session.received.forEach((start, end) -> ranges.add(new long[]{start, end}));
+        SessionState state = new SessionState(session.id, session.fileName, session.size, session.createdAt, ranges);
+        Path temp = Paths.get(sessionDir).resolve(session.id + ".json.tmp");
+        objectMapper.writeValue(temp.toFile(), state);
+        Files.move(temp, metadataPath(session.id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void discard(String id) throws IOException {
+        sessions.remove(id);
+        Files.deleteIfExists(partialPath(id));
+        Files.deleteIfExists(metadataPath(id));
+    }
+
+    private Path partialPath(String id) {
+        return Paths.get(sessionDir).resolve(id + ".part");
+    }
+
+    private Path metadataPath(String id) {
+        return Paths.get(sessionDir).resolve(id + ".json");
+    }
+
+    private static boolean isValidId(String id) {
+        try {
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static final class UploadSession {
+        private final String id;
+        private final String fileName;
+        private final long size;
+        private final long createdAt;
+
+        // Received byte ranges as start -> end (exclusive), kept merged
+        private final TreeMap<Long, Long> received = new TreeMap<>();
+
+        UploadSession(String id, String fileName, long size, long createdAt) {
+            this.id = id;
+            this.fileName = fileName;
+            this.size = size;
+            this.createdAt = createdAt;
+        }
+
+        void markReceived(long start, long end) {
+            Map.Entry<Long, Long> before = received.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Long, Long> next = received.ceilingEntry(start);
+            while (next != null && next.getKey() <= end) {
+                end = Math.max(end, next.getValue());
+                received.remove(next.getKey());
+                next = received.ceilingEntry(start);
+            }
+            received.put(start, end);
+        }
+
+        long receivedBytes() {
+            long total = 0;
+            for (Map.Entry<Long, Long> range : received.entrySet()) {
+                total += range.getValue() - range.getKey();
+            }
+            return total;
+        }
+
+        long nextOffset() {
+            Map.Entry<Long, Long> first = received.firstEntry();
+            return first == null || first.getKey() > 0 ? 0 : first.getValue();
+        }
+
+        UploadStatus status() {
+            long receivedBytes = receivedBytes();
+            return new UploadStatus(id, fileName, size, receivedBytes, nextOffset(), receivedBytes == size);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package backend.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Bounded read-through cache with LRU eviction and a fixed time-to-live per entry
+public class EntityCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private long invalidationCount;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    public EntityCache(String name, int maxSize, long ttlSeconds) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        if (!isEnabled()) {
+            misses.increment();
+            return loader.apply(key);
+        }
+
+        long invalidationsBeforeLoad;
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() - System.nanoTime() > 0) {
+                    hits.increment();
+                    return Optional.of(entry.value());
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+            invalidationsBeforeLoad = invalidationCount;
+        }
+
+        misses.increment();
+        Optional<V> loaded = loader.apply(key);
+        loaded.ifPresent(value -> {
+            synchronized (entries) {
+                if (invalidationCount == invalidationsBeforeLoad) {
+                    entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+                    evictOverflow();
+                }
+            }
+        });
+        return loaded;
+    }
+
+    // Cached values for the keys that have them; the rest come from one batchLoader call and are cached
+    public Map<K, V> getAll(Collection<K> keys, Function<Collection<K>, Map<K, V>> batchLoader) {
+        Map<K, V> found = new LinkedHashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        long invalidationsBeforeLoad;
+        synchronized (entries) {
+            long now = System.nanoTime();
+            for (K key : keys) {
+                Entry<V> entry = isEnabled() ? entries.get(key) : null;
+                if (entry != null && entry.expiresAt() - now > 0) {
+                    hits.increment();
+                    found.put(key, entry.value());
+                } else if (!found.containsKey(key) && missing.add(key)) {
+                    if (entry != null) {
+                        entries.remove(key);
+                        expirations.increment();
+                    }
+                }
+            }
+            invalidationsBeforeLoad = invalidationCount;
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        misses.add(missing.size());
+        Map<K, V> loaded = batchLoader.apply(new ArrayList<>(missing));
+        found.putAll(loaded);
+        if (isEnabled()) {
+            synchronized (entries) {
+                if (invalidationCount == invalidationsBeforeLoad) {
+                    long expiresAt = System.nanoTime() + ttlNanos;
+                    loaded.forEach((key, value) -> entries.put(key, new Entry<>(value, expiresAt)));
+                    evictOverflow();
+                }
+            }
+        }
+        return found;
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+            invalidationCount++;
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            invalidationCount++;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("name", name);
+        stats.put("enabled", isEnabled());
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package backend.service;
+
+import backend.model.RecipeManagementModel;
+import backend.repository.RecipeManagementRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// "Recipes from people I follow": new recipe ids are pushed into a bounded buffer per follower when created
+// (fan-out on write), except for authors with very many followers, whose recipes readers query instead
+@Service
+public class FeedService {
+
+    // Keeps IN lists and the per-author index scans of one seeding query small
+    private static final int AUTHOR_CHUNK = 1000;
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    @Autowired
+    private RecipeManagementRepository recipeManagementRepository;
+
+    @Autowired
+    private EntityCache<Long, RecipeManagementModel> recipeCache;
+
+    @Value("${app.feed.buffer-size:500}")
+    private int bufferSize;
+
+    @Value("${app.feed.max-buffers:100000}")
+    private int maxBuffers;
+
+    @Value("${app.feed.fanout-max-followers:10000}")
+    private int fanoutMaxFollowers;
+
+    // Created on a user's first feed read and dropped when they follow or unfollow someone
+    private final Map<Long, FeedBuffer> buffers = new ConcurrentHashMap<>();
+
+    private final Object evictionLock = new Object();
+
+    // Authors whose recipes since startup were not pushed because they had too many followers
+    private final Set<Long> pulledAuthors = ConcurrentHashMap.newKeySet();
+
+    public record FeedPage(List<RecipeManagementModel> items, Long nextCursor) {
+    }
+
+    public void recipeCreated(RecipeManagementModel recipe) {
+        Long authorId = recipe.getAuthorId();
+        if (authorId == null || recipe.getRecipeId() == null) {
+            return;
+        }
+        if (followGraph.followerCount(authorId) > fanoutMaxFollowers) {
+            pulledAuthors.add(authorId);
+            return;
+        }
+        // Only buffers that exist need the push; users without one are seeded from the database on their next read
+        if (buffers.size() < followGraph.followerCount(authorId)) {
+            buffers.forEach((userId, buffer) -> {
+                if (followGraph.isFollowing(userId, authorId)) {
+                    buffer.push(recipe.getRecipeId());
+                }
+            });
+        } else {
+            for (long followerId : followGraph.followers(authorId)) {
+                FeedBuffer buffer = buffers.get(followerId);
+                if (buffer != null) {
+                    buffer.push(recipe.getRecipeId());
+                }
+            }
+        }
+    }
+
+    // The followed set changed, so the buffered ids no longer match it; rebuilt on the next read
+    public void followingChanged(long userId) {
+        buffers.remove(userId);
+    }
+
+    // Newest first, below the cursor (a recipe id); nextCursor is null on the last page
+    public FeedPage page(long userId, long before, int limit) {
+        // Also covers ids with no user behind them, so they never get a buffer
+        if (followGraph.followingCount(userId) == 0) {
+            return new FeedPage(List.of(), null);
+        }
+        FeedBuffer buffer = buffers.get(userId);
+        if (buffer == null) {
+            makeRoom();
+            buffer = buffers.computeIfAbsent(userId, id -> new FeedBuffer(bufferSize));
+        }
+        buffer.lastReadAt = System.nanoTime();
+        if (!buffer.seeded) {
+            seed(userId, buffer);
+        }
+
+        List<Long> ids = buffer.before(before, limit);
+        if (ids.size() < limit && buffer.truncated()) {
+            // Paged past what the buffer holds: read this page from the database
+            ids = newestByAuthors(followGraph.following(userId), before, limit);
+        } else {
+            ids = merge(ids, newestByAuthors(followedPulledAuthors(userId), before, limit), limit);
+        }
+
+        Map<Long, RecipeManagementModel> recipesById = recipeCache.getAll(ids, missing ->
+                recipeManagementRepository.findAllById(missing).stream()
+                        .collect(Collectors.toMap(RecipeManagementModel::getRecipeId, Function.identity())));
+        List<RecipeManagementModel> items = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            RecipeManagementModel recipe = recipesById.get(id);
+            if (recipe != null) {
+                items.add(recipe); // Deleted recipes are skipped but still advance the cursor
+            }
+        }
+        return new FeedPage(items, ids.size() < limit ? null : ids.get(ids.size() - 1));
+    }
+
+    // Keeps the number of buffers within max-buffers by dropping the least recently read 1% when full
+    private void makeRoom() {
+        if (buffers.size() < maxBuffers) {
+            return;
+        }
+        synchronized (evictionLock) {
+            if (buffers.size() < maxBuffers) {
+                return; // Another thread made room meanwhile
+            }
+            int excess = buffers.size() - maxBuffers + Math.max(1, maxBuffers / 100);
+            buffers.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(a.getValue().lastReadAt, b.getValue().lastReadAt))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(buffers::remove);
+        }
+    }
+
+    private void seed(long userId, FeedBuffer buffer) {
+        synchronized (buffer.seedLock) {
+            if (buffer.seeded) {
+                return;
+            }
+            // Recipes created while this runs are pushed as well; the buffer ignores duplicates
+            List<Long> ids = newestByAuthors(followGraph.following(userId), Long.MAX_VALUE, bufferSize);
+            buffer.seed(ids, ids.size() >= bufferSize);
+            buffer.seeded = true;
+        }
+    }
+
+    private long[] followedPulledAuthors(long userId) {
+        return pulledAuthors.stream()
+                .filter(authorId -> followGraph.isFollowing(userId, authorId))
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    // Fan-out on read: the newest recipe ids by the given authors below the cursor
+    private List<Long> newestByAuthors(long[] authorIds, long before, int limit) {
+        List<Long> newest = new ArrayList<>();
+        for (int from = 0; from < authorIds.length; from += AUTHOR_CHUNK) {
+            List<Long> chunk = new ArrayList<>();
+            for (int i = from; i < Math.min(authorIds.length, from + AUTHOR_CHUNK); i++) {
+                chunk.add(authorIds[i]);
+            }
+            newest = merge(newest, recipeManagementRepository.findIdsByAuthorIdInBefore(chunk, before, Limit.of(limit)), limit);
+        }
+        return newest;
+    }
+
+    // Union of two newest-first id lists, newest first, without duplicates
+    private static List<Long> merge(Collection<Long> a, Collection<Long> b, int limit) {
+        if (b.isEmpty()) {
+            return new ArrayList<>(a);
+        }
+        TreeSet<Long> union = new TreeSet<>(a);
+        union.addAll(b);
+        return union.descendingSet().stream().limit(limit).collect(Collectors.toList());
+    }
+
+    // Recipe ids in ascending order in a ring of bounded capacity; the oldest id is dropped when full.
+    // The array starts small and doubles up to the capacity, so buffers of quiet feeds stay small
+    private static final class FeedBuffer {
+        private static final int INITIAL_LENGTH = 16;
+
+        private final int capacity;
+        private long[] ids;
+        private int head; // Index of the oldest id
+        private int size;
+        private boolean truncated; // Older ids exist than the buffer holds
+
+        private final Object seedLock = new Object();
+        private volatile boolean seeded;
+        private volatile long lastReadAt = System.nanoTime();
+
+        FeedBuffer(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            ids = new long[Math.min(this.capacity, INITIAL_LENGTH)];
+        }
+
+        synchronized void push(long id) {
+            // Ids almost always arrive in increasing order, so this rarely moves anything
+            int position = size;
+            while (position > 0 && at(position - 1) > id) {
+                position--;
+            }
+            if (position > 0 && at(position - 1) == id) {
+                return; // Already buffered, so nothing is evicted for it
+            }
+            if (size == ids.length && ids.length < capacity) {
+                grow();
+            }
+            if (size == capacity) {
+                truncated = true;
+                if (position == 0) {
+                    return; // Older than everything a full buffer holds
+                }
+                head = (head + 1) % ids.length;
+                size--;
+                position--;
+            }
+            for (int i = size; i > position; i--) {
+                ids[(head + i) % ids.length] = at(i - 1);
+            }
+            ids[(head + position) % ids.length] = id;
+            size++;
+        }
+
+        synchronized void seed(List<Long> newestFirst, boolean moreInDatabase) {
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                push(newestFirst.get(i));
+            }
+            truncated |= moreInDatabase;
+        }
+
+        synchronized List<Long> before(long cursor, int limit) {
+            List<Long> page = new ArrayList<>(Math.min(limit, size));
+            for (int i = size - 1; i >= 0 && page.size() < limit; i--) {
+                long id = at(i);
+                if (id < cursor) {
+                    page.add(id);
+                }
+            }
+            return page;
+        }
+
+        synchronized boolean truncated() {
+            return truncated;
+        }
+
+        private void grow() {
+            long[] grown = new long[Math.min(capacity, ids.length * 2)];
+            for (int i = 0; i < size; i++) {
+                grown[i] = at(i);
+            }
+            ids = grown;
+            head = 0;
+        }
+
+        private long at(int offset) {
+            return ids[(head + offset) % ids.length];
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package backend.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Serves uploaded files with validators, long-lived caching for generated names, Range support and sendfile
+@Service
+public class FileServingService {
+
+    // Same threshold Tomcat's DefaultServlet uses before handing a file to sendfile
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE_CACHE_CONTROL = "public, no-cache";
+    // The original standing in for a variant that is still being generated; the same URL must pick the variant up soon
+    private static final String PENDING_VARIANT_CACHE_CONTROL = "public, max-age=60";
+
+    // UUID or hex digest file names never change content, so they can be cached forever
+    private static final Pattern GENERATED_NAME = Pattern.compile(
+            "^([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}|[0-9a-f]{32,64})(\\.[A-Za-z0-9]+)?$");
+    private static final Pattern SINGLE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    @Autowired
+    private BlobBackend blobBackend;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    private final Map<String, String> contentTypesByExtension = new ConcurrentHashMap<>();
+
+    // Serves an upload by file name: from the upload store for content-addressed names,
+    // otherwise from the folder files were saved to before the store existed
+    public void serveUpload(String fileName, String size, Path legacyDir,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (UploadStore.isStoredName(fileName)) {
+            String key = UploadStore.keyFor(fileName);
+            String resolved = imageDerivativeService.resolve(key, size);
+            boolean pendingVariant = ImageDerivativeService.isVariantSize(size) && resolved.equals(key);
+            serve(blobBackend, resolved, pendingVariant, request, response);
+        } else {
+            Path original = legacyDir.resolve(fileName);
+            Path resolved = imageDerivativeService.resolve(original, size);
+            boolean pendingVariant = ImageDerivativeService.isVariantSize(size) && resolved.equals(original);
+            serve(legacyDir, resolved, pendingVariant, request, response);
+        }
+    }
+
+    // Local backends are served from disk; remote ones by redirecting to a short-lived signed URL
+    public void serve(BlobBackend backend, String key, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(backend, key, false, request, response);
+    }
+
+    private void serve(BlobBackend backend, String key, boolean pendingVariant,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<Path> file = backend.localPath(key);
+        if (file.isPresent()) {
+            serve(file.get().getParent(), file.get(), pendingVariant, request, response);
+            return;
+        }
+        Optional<URI> url = backend.downloadUrl(key);
+        if (url.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store"); // The signed URL expires
+        response.sendRedirect(url.get().toString());
+    }
+
+    public void serve(Path baseDir, Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(baseDir, file, false, request, response);
+    }
+
+    private void serve(Path baseDir, Path file, boolean pendingVariant,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path base = baseDir.toAbsolutePath().normalize();
+        Path target = file.toAbsolutePath().normalize();
+        if (!target.startsWith(base) || !Files.isRegularFile(target)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        String fileName = target.getFileName().toString();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, pendingVariant ? PENDING_VARIANT_CACHE_CONTROL
+                : GENERATED_NAME.matcher(fileName).matches() ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, etag, lastModified)) {
+            Matcher matcher = SINGLE_RANGE.matcher(range.trim());
+            if (matcher.matches()) {
+                long[] bounds = parseRange(matcher.group(1), matcher.group(2), length);
+                if (bounds == null) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+            // Multi-range requests are answered with the whole file, which RFC 9110 allows
+        }
+
+        long count = end - start + 1;
+        response.setContentType(contentType(fileName));
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            // Tomcat streams the file with sendfile after this request returns
+            request.setAttribute("org.apache.tomcat.sendfile.filename", target.toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", start);
+            request.setAttribute("org.apache.tomcat.sendfile.end", end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    private String contentType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return contentTypesByExtension.computeIfAbsent(extension, key -> MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString());
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        return dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    // Returns inclusive [start, end], or null when the range cannot be satisfied
+    private static long[] parseRange(String first, String last, long length) {
+        try {
+            if (first.isEmpty() && last.isEmpty()) {
+                return null;
+            }
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                return suffix == 0 || length == 0 ? null : new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            return start >= length || start > end ? null : new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package backend.service;
+
+import backend.exception.UserNotFoundException;
+import backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Follows or unfollows many users at once: one IN query to validate, one JDBC batch in one transaction to write
+@Service
+public class FollowBatchService {
+
+    private static final String INSERT_SQL = "INSERT INTO user_follow (follower_id, following_id) VALUES (?, ?) "
+            + "ON DUPLICATE KEY UPDATE id = id";
+    private static final String DELETE_SQL = "DELETE FROM user_follow WHERE follower_id = ? AND following_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    @Autowired
+    private FollowCounters followCounters;
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    public enum Result {
+        FOLLOWED, ALREADY_FOLLOWING, UNFOLLOWED, NOT_FOLLOWING, NOT_FOUND
+    }
+
+    // Per target id, in request order
+    public Map<Long, Result> follow(long followerId, Collection<Long> targetIds) {
+        Set<Long> targets = new LinkedHashSet<>(targetIds);
+        Map<Long, Result> results = new LinkedHashMap<>();
+        List<Object[]> rows = new ArrayList<>();
+        Set<Long> existing = existingUsers(followerId, targets);
+        for (Long targetId : targets) {
+            if (!existing.contains(targetId)) {
+                results.put(targetId, Result.NOT_FOUND);
+            } else if (followGraph.isFollowing(followerId, targetId)) {
+                // Rewritten batches report no per-row counts, so the follow graph decides what is new
+                results.put(targetId, Result.ALREADY_FOLLOWING);
+            } else {
+                results.put(targetId, Result.FOLLOWED);
+                rows.add(new Object[]{followerId, targetId});
+            }
+        }
+        if (rows.isEmpty()) {
+            return results;
+        }
+
+        // Duplicates (a concurrent request got there first) are kept as they are; any other error rolls back the batch
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+        for (Object[] row : rows) {
+            long targetId = (Long) row[1];
+            if (followGraph.follow(followerId, targetId)) {
+                followCounters.followed(followerId, targetId);
+            }
+        }
+        followChanged(followerId);
+        return results;
+    }
+
+    public Map<Long, Result> unfollow(long followerId, Collection<Long> targetIds) {
+        Set<Long> targets = new LinkedHashSet<>(targetIds);
+        Map<Long, Result> results = new LinkedHashMap<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (Long targetId : targets) {
+            if (followGraph.isFollowing(followerId, targetId)) {
+                results.put(targetId, Result.UNFOLLOWED);
+                rows.add(new Object[]{followerId, targetId});
+            } else {
+                results.put(targetId, Result.NOT_FOLLOWING);
+            }
+        }
+        if (rows.isEmpty()) {
+            return results;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> jdbcTemplate.batchUpdate(DELETE_SQL, rows));
+        for (Object[] row : rows) {
+            long targetId = (Long) row[1];
+            if (followGraph.unfollow(followerId, targetId)) {
+                followCounters.unfollowed(followerId, targetId);
+            }
+        }
+        followChanged(followerId);
+        return results;
+    }
+
+    // The follower and every target that exists, from a single IN query
+    private Set<Long> existingUsers(long followerId, Set<Long> targets) {
+        List<Long> ids = new ArrayList<>(targets);
+        ids.add(followerId);
+        Set<Long> existing = new HashSet<>(userRepository.findExistingIds(ids));
+        if (!existing.contains(followerId)) {
+            throw new UserNotFoundException(followerId);
+        }
+        return existing;
+    }
+
+    private void followChanged(long followerId) {
+        feedService.followingChanged(followerId);
+        suggestionService.followChanged(followerId);
+    }
+}
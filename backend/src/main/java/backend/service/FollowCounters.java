@@ -0,0 +1,158 @@
+package backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Follower/following counts denormalized onto user_model: follows add to in-memory LongAdders,
+// which are written to MySQL in one batch per interval and reconciled against user_follow periodically
+@Service
+public class FollowCounters {
+
+    private static final String FLUSH_SQL = "UPDATE user_model SET follower_count = follower_count + ?, "
+            + "following_count = following_count + ? WHERE id = ?";
+
+    // Recounts one id range; both subqueries are index range scans (uk_user_follow_pair, idx_user_follow_following_follower)
+    private static final String RECONCILE_SQL = "UPDATE user_model u "
+            + "LEFT JOIN (SELECT following_id AS id, COUNT(*) AS c FROM user_follow WHERE following_id BETWEEN ? AND ? GROUP BY following_id) fr ON fr.id = u.id "
+            + "LEFT JOIN (SELECT follower_id AS id, COUNT(*) AS c FROM user_follow WHERE follower_id BETWEEN ? AND ? GROUP BY follower_id) fg ON fg.id = u.id "
+            + "SET u.follower_count = COALESCE(fr.c, 0), u.following_count = COALESCE(fg.c, 0) "
+            + "WHERE u.id BETWEEN ? AND ?";
+    private static final long RECONCILE_RANGE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Updates share the read lock; a flush takes the write lock only to swap in an empty map
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<Long, Delta> pending = new ConcurrentHashMap<>();
+    private volatile Map<Long, Delta> flushing = Map.of();
+
+    private static final class Delta {
+        private final LongAdder followers = new LongAdder();
+        private final LongAdder following = new LongAdder();
+    }
+
+    public void followed(long followerId, long followingId) {
+        add(followerId, followingId, 1);
+    }
+
+    public void unfollowed(long followerId, long followingId) {
+        add(followerId, followingId, -1);
+    }
+
+    // Changes not yet in user_model, to add to the stored counts when reading a user
+    public long pendingFollowers(long userId) {
+        return sum(pending.get(userId), true) + sum(flushing.get(userId), true);
+    }
+
+    public long pendingFollowing(long userId) {
+        return sum(pending.get(userId), false) + sum(flushing.get(userId), false);
+    }
+
+    // Stored counts plus pending changes, the same numbers GET /user/{id} reports; empty for unknown users
+    public Optional<Map<String, Long>> counts(long userId) {
+        List<Map<String, Long>> rows = jdbcTemplate.query(
+                "SELECT follower_count, following_count FROM user_model WHERE id = ?",
+                (rs, rowNum) -> Map.of(
+                        "followers", rs.getLong("follower_count") + pendingFollowers(userId),
+                        "following", rs.getLong("following_count") + pendingFollowing(userId)),
+                userId);
+        return rows.stream().findFirst();
+    }
+
+    @Scheduled(fixedDelayString = "${app.follow.counters.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            flushing = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        List<Object[]> rows = new ArrayList<>(flushing.size());
+        flushing.forEach((userId, delta) -> {
+            long followers = delta.followers.sum();
+            long following = delta.following.sum();
+            if (followers != 0 || following != 0) {
+                rows.add(new Object[]{followers, following, userId});
+            }
+        });
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(
+                    status -> jdbcTemplate.batchUpdate(FLUSH_SQL, rows));
+        } catch (RuntimeException e) {
+            // Keep the deltas for the next flush rather than losing them
+            System.err.println("Failed to flush follow counters, retrying next interval: " + e.getMessage());
+            flushing.forEach((userId, delta) -> {
+                long followers = delta.followers.sum();
+                long following = delta.following.sum();
+                swapLock.readLock().lock();
+                try {
+                    Delta target = pending.computeIfAbsent(userId, id -> new Delta());
+                    target.followers.add(followers);
+                    target.following.add(following);
+                } finally {
+                    swapLock.readLock().unlock();
+                }
+            });
+        }
+        flushing = Map.of();
+    }
+
+    // Recount from user_follow to undo drift (e.g. a crash between a follow and its flush);
+    // a follow landing between a range's recount and the next flush is off by one until the next run.
+    // Also runs at startup, since counts lost in a crash would otherwise stay wrong until the first scheduled run
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.follow.counters.reconcile-interval-ms:3600000}",
+            fixedDelayString = "${app.follow.counters.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        flush();
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user_model", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        for (long from = 0; from <= maxId; from += RECONCILE_RANGE) {
+            long to = from + RECONCILE_RANGE - 1;
+            jdbcTemplate.update(RECONCILE_SQL, from, to, from, to, from, to);
+        }
+    }
+
+    private void add(long followerId, long followingId, long amount) {
+        swapLock.readLock().lock();
+        try {
+            pending.computeIfAbsent(followingId, id -> new Delta()).followers.add(amount);
+            pending.computeIfAbsent(followerId, id -> new Delta()).following.add(amount);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static long sum(Delta delta, boolean followers) {
+        if (delta == null) {
+            return 0;
+        }
+        return followers ? delta.followers.sum() : delta.following.sum();
+    }
+}
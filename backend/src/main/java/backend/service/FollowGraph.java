@@ -0,0 +1,252 @@
+package backend.service;
+
+import backend.repository.UserFollowRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Who-follows-whom kept in memory as primitive id sets, so follow checks and lists skip the database
+@Service
+public class FollowGraph implements SmartInitializingSingleton {
+
+    private static final long[] NONE = new long[0];
+
+    @Autowired
+    private UserFollowRepository userFollowRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // user id -> ids they follow, and user id -> ids following them
+    private final Map<Long, LongHashSet> following = new HashMap<>();
+    private final Map<Long, LongHashSet> followers = new HashMap<>();
+
+    // Runs before the web server starts: follow and unfollow trust this graph to say whether a pair is new,
+    // so it must hold every follow before the first request arrives
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    // Load every follow from the database
+    public void rebuild() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        lock.writeLock().lock();
+        try {
+            following.clear();
+            followers.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> pairs = userFollowRepository.streamAllPairs()) {
+                    pairs.forEach(pair -> addLocked(((Number) pair[0]).longValue(), ((Number) pair[1]).longValue()));
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Call after the follow has been written; returns false if it was already known
+    public boolean follow(long followerId, long followingId) {
+        lock.writeLock().lock();
+        try {
+            return addLocked(followerId, followingId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean unfollow(long followerId, long followingId) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = removeLocked(following, followerId, followingId);
+            removeLocked(followers, followingId, followerId);
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drops every edge touching a deleted user
+    public void removeUser(long userId) {
+        lock.writeLock().lock();
+        try {
+            LongHashSet targets = following.remove(userId);
+            if (targets != null) {
+                targets.forEach(target -> removeLocked(followers, target, userId));
+            }
+            LongHashSet sources = followers.remove(userId);
+            if (sources != null) {
+                sources.forEach(source -> removeLocked(following, source, userId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isFollowing(long followerId, long followingId) {
+        lock.readLock().lock();
+        try {
+            LongHashSet targets = following.get(followerId);
+            return targets != null && targets.contains(followingId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Follow state for each target, in the order given, under a single read lock
+    public boolean[] isFollowing(long followerId, long[] targetIds) {
+        boolean[] result = new boolean[targetIds.length];
+        lock.readLock().lock();
+        try {
+            LongHashSet targets = following.get(followerId);
+            if (targets != null) {
+                for (int i = 0; i < targetIds.length; i++) {
+                    result[i] = targets.contains(targetIds[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public int followingCount(long userId) {
+        return size(following, userId);
+    }
+
+    public int followerCount(long userId) {
+        return size(followers, userId);
+    }
+
+    // Ids the user follows, ascending
+    public long[] following(long userId) {
+        return ids(following, userId);
+    }
+
+    // Ids following the user, ascending
+    public long[] followers(long userId) {
+        return ids(followers, userId);
+    }
+
+    // Friends of friends: for each user two hops away that this user does not follow yet,
+    // how many of the people they follow follow that user. Large neighbourhoods are counted in parallel
+    public Map<Long, Integer> secondHopCounts(long userId, int parallelThreshold) {
+        lock.readLock().lock();
+        try {
+            LongHashSet direct = following.get(userId);
+            if (direct == null) {
+                return Map.of();
+            }
+            long[] hops = direct.toSortedArray();
+            long work = 0;
+            for (long hop : hops) {
+                work += size(following.get(hop));
+            }
+            // Workers only read; the read lock held here keeps writers out until they finish
+            SecondHopTask task = new SecondHopTask(userId, direct, hops, 0, hops.length);
+            return work >= parallelThreshold ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private final class SecondHopTask extends RecursiveTask<Map<Long, Integer>> {
+        private static final int LEAF_SIZE = 32;
+
+        private final long userId;
+        private final LongHashSet direct;
+        private final long[] hops;
+        private final int from;
+        private final int to;
+
+        SecondHopTask(long userId, LongHashSet direct, long[] hops, int from, int to) {
+            this.userId = userId;
+            this.direct = direct;
+            this.hops = hops;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Long, Integer> compute() {
+            // Run outside a pool (small neighbourhoods), the whole range is counted on the calling thread
+            if (to - from <= LEAF_SIZE || getPool() == null) {
+                Map<Long, Integer> counts = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    LongHashSet next = following.get(hops[i]);
+                    if (next != null) {
+                        next.forEach(candidate -> {
+                            if (candidate != userId && !direct.contains(candidate)) {
+                                counts.merge(candidate, 1, Integer::sum);
+                            }
+                        });
+                    }
+                }
+                return counts;
+            }
+            int middle = (from + to) >>> 1;
+            SecondHopTask left = new SecondHopTask(userId, direct, hops, from, middle);
+            left.fork();
+            Map<Long, Integer> counts = new SecondHopTask(userId, direct, hops, middle, to).compute();
+            Map<Long, Integer> leftCounts = left.join();
+            Map<Long, Integer> smaller = leftCounts.size() < counts.size() ? leftCounts : counts;
+            Map<Long, Integer> larger = smaller == counts ? leftCounts : counts;
+            smaller.forEach((candidate, count) -> larger.merge(candidate, count, Integer::sum));
+            return larger;
+        }
+    }
+
+    private static int size(LongHashSet set) {
+        return set == null ? 0 : set.size();
+    }
+
+    private int size(Map<Long, LongHashSet> adjacency, long userId) {
+        lock.readLock().lock();
+        try {
+            LongHashSet set = adjacency.get(userId);
+            return set == null ? 0 : set.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] ids(Map<Long, LongHashSet> adjacency, long userId) {
+        lock.readLock().lock();
+        try {
+            LongHashSet set = adjacency.get(userId);
+            return set == null ? NONE : set.toSortedArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean addLocked(long followerId, long followingId) {
+        boolean added = following.computeIfAbsent(followerId, id -> new LongHashSet()).add(followingId);
+        followers.computeIfAbsent(followingId, id -> new LongHashSet()).add(followerId);
+        return added;
+    }
+
+    private static boolean removeLocked(Map<Long, LongHashSet> adjacency, long from, long to) {
+        LongHashSet set = adjacency.get(from);
+        if (set == null || !set.remove(to)) {
+            return false;
+        }
+        if (set.isEmpty()) {
+            adjacency.remove(from);
+        }
+        return true;
+    }
+}
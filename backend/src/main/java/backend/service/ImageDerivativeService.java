@@ -0,0 +1,254 @@
+package backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates resized variants of uploaded images on a bounded background pool
+@Service
+public class ImageDerivativeService {
+
+    public static final String VARIANTS_DIR = "variants";
+
+    // Longest edge in pixels for each variant
+    private static final Map<String, Integer> SIZES = Map.of("thumb", 160, "medium", 640);
+
+    private final ThreadPoolExecutor executor;
+    private final BlobBackend blobBackend;
+    private final long maxPixels;
+
+    // Whether each requested variant key exists, so a ?size= request does not ask the backend (a HEAD on S3)
+    // every time; a cached miss also stops a failing image from being queued again on every request
+    private final EntityCache<String, Boolean> variantCache;
+
+    // Keys queued or being processed, so repeated requests for a missing variant queue it once
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public ImageDerivativeService(BlobBackend blobBackend,
+                                  @Value("${app.images.workers:2}") int workers,
+                                  @Value("${app.images.queue-capacity:200}") int queueCapacity,
+                                  @Value("${app.images.max-pixels:40000000}") long maxPixels,
+                                  @Value("${app.images.variant-cache-size:10000}") int variantCacheSize,
+                                  @Value("${app.images.variant-cache-ttl-seconds:300}") long variantCacheTtlSeconds) {
+        this.blobBackend = blobBackend;
+        this.maxPixels = maxPixels;
+        this.variantCache = new EntityCache<>("imageVariants", variantCacheSize, variantCacheTtlSeconds);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivatives-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Queue variant generation for a stored upload; never blocks the upload request
+    public void submit(String key) {
+        if (!pending.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(key);
+                } finally {
+                    pending.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue is full; the next request for a variant of this file queues it again (see resolve)
+            pending.remove(key);
+            System.err.println("Image derivative queue full, skipping: " + key);
+        }
+    }
+
+    public static boolean isVariantSize(String size) {
+        return size != null && SIZES.containsKey(size.toLowerCase(Locale.ROOT));
+    }
+
+    // Key of the requested variant if it has been generated, otherwise the original key.
+    // A missing variant is queued here, since uploads only queue new content and the queue may have been full
+    public String resolve(String key, String size) {
+        if (!isVariantSize(size)) {
+            return key;
+        }
+        String variant = variantKey(key, size.toLowerCase(Locale.ROOT));
+        boolean exists = variantCache.get(variant, missing -> {
+            try {
+                boolean found = blobBackend.exists(missing);
+                if (!found && isReadableImage(key)) {
+                    submit(key);
+                }
+                return Optional.of(found);
+            } catch (IOException e) {
+                return Optional.empty(); // Not cached; serve the original
+            }
+        }).orElse(false);
+        return exists ? variant : key;
+    }
+
+    public Map<String, Object> stats() {
+        return variantCache.stats();
+    }
+
+    // Same lookup for files from before the upload store, whose variants sit next to them on disk
+    public Path resolve(Path original, String size) {
+        if (!isVariantSize(size)) {
+            return original;
+        }
+        Path variant = variantPath(original, size.toLowerCase(Locale.ROOT));
+        return Files.exists(variant) ? variant : original;
+    }
+
+    public static Path variantPath(Path original, String size) {
+        return original.resolveSibling(VARIANTS_DIR).resolve(size).resolve(original.getFileName());
+    }
+
+    // "ab/cd/name.jpg" -> "ab/cd/variants/thumb/name.jpg", mirroring variantPath
+    public static String variantKey(String key, String size) {
+        int slash = key.lastIndexOf('/');
+        return key.substring(0, slash + 1) + VARIANTS_DIR + "/" + size + "/" + key.substring(slash + 1);
+    }
+
+    public static List<String> variantKeys(String key) {
+        List<String> variants = new ArrayList<>();
+        for (String size : SIZES.keySet()) {
+            variants.add(variantKey(key, size));
+        }
+        return variants;
+    }
+
+    private void generate(String key) {
+        try {
+            BufferedImage source;
+            try (InputStream in = blobBackend.open(key)) {
+                source = decode(key, in);
+            }
+            if (source == null) {
+                return; // Not an image ImageIO can decode (e.g. video), or too large to decode
+            }
+            String format = formatOf(key);
+            for (Map.Entry<String, Integer> size : SIZES.entrySet()) {
+                String variant = variantKey(key, size.getKey());
+                BufferedImage resized = resize(source, size.getValue(), "png".equals(format));
+
+                // Write to a temp file first so readers never see a half-written variant;
+                // next to the target when the backend is local, so the final move is atomic
+                Path tempDir = blobBackend.localPath(variant).map(Path::getParent).orElse(null);
+                if (tempDir != null) {
+                    Files.createDirectories(tempDir);
+                }
+                Path temp = tempDir != null
+                        ? Files.createTempFile(tempDir, "variant", ".tmp")
+                        : Files.createTempFile("variant", ".tmp");
+                try {
+                    // False when no writer handles the format; the empty temp file is removed below
+                    if (!ImageIO.write(resized, format, temp.toFile())) {
+                        System.err.println("No image writer for " + format + ", skipping variant " + variant);
+                        continue;
+                    }
+                    blobBackend.put(variant, temp);
+                    variantCache.invalidate(variant);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to generate image variants for " + key + ": " + e.getMessage());
+        }
+    }
+
+    // Reads the dimensions from the header first, so a small file declaring a huge image is never decoded
+    private BufferedImage decode(String key, InputStream in) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    System.err.println("Image " + key + " has " + pixels + " pixels, over the limit of "
+                            + maxPixels + "; no variants generated");
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int maxEdge, boolean keepAlpha) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        int type = keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        // Halve repeatedly before the final step; a single bilinear pass over a large reduction looks aliased
+        BufferedImage current = source;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    // Videos and other files ImageIO cannot decode never get variants, so they are not queued
+    private static boolean isReadableImage(String key) {
+        int dot = key.lastIndexOf('.');
+        return dot > key.lastIndexOf('/') && ImageIO.getImageReadersBySuffix(key.substring(dot + 1)).hasNext();
+    }
+
+    private static String formatOf(String key) {
+        String name = key.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".png")) {
+            return "png";
+        }
+        if (name.endsWith(".gif")) {
+            return "gif";
+        }
+        return "jpg";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,233 @@
+package backend.service;
+
+import backend.model.RecipeManagementModel;
+import backend.repository.RecipeManagementRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Ingredient dictionary with one recipe-id bitmap per ingredient, for "cook with what I have" lookups
+@Service
+public class IngredientIndex {
+
+    private static final Pattern LINE_SEPARATOR = Pattern.compile("[,;\\n]+");
+    private static final Set<String> QUANTITY_WORDS = Set.of(
+            "cup", "cups", "tbsp", "tablespoon", "tablespoons", "tsp", "teaspoon", "teaspoons",
+            "g", "gram", "grams", "kg", "ml", "l", "litre", "liter", "litres", "liters",
+            "oz", "ounce", "ounces", "lb", "lbs", "pound", "pounds", "pinch", "clove", "cloves",
+            "slice", "slices", "can", "cans", "handful", "of", "a", "an");
+
+    @Autowired
+    private RecipeManagementRepository recipeManagementRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> ingredientIds = new HashMap<>();
+    private final List<String> ingredientNames = new ArrayList<>();
+    private final List<RoaringBitmap> recipesByIngredient = new ArrayList<>();
+    private final Map<Integer, int[]> ingredientsByRecipe = new HashMap<>();
+
+    public record PantryMatch(Long recipeId, List<String> missingIngredients) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ingredientIds.clear();
+            ingredientNames.clear();
+            recipesByIngredient.clear();
+            ingredientsByRecipe.clear();
+
+            try (Stream<RecipeManagementModel> recipes = recipeManagementRepository.streamAllOrderByRecipeId()) {
+                recipes.forEach(recipe -> {
+                    addLocked(recipe.getRecipeId(), normalizeAll(recipe.getIngredients()));
+                    entityManager.detach(recipe);
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(RecipeManagementModel recipe) {
+        Set<String> ingredients = normalizeAll(recipe.getIngredients());
+        lock.writeLock().lock();
+        try {
+            removeLocked(recipe.getRecipeId());
+            addLocked(recipe.getRecipeId(), ingredients);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Recipes using at least one pantry ingredient and missing at most maxMissing others, fewest missing first
+    public List<PantryMatch> findCookable(Collection<String> pantry, int maxMissing, int limit) {
+        Set<Integer> pantryIds = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            for (String item : pantry) {
+                Integer ingredientId = ingredientIds.get(normalize(item));
+                if (ingredientId != null) {
+                    pantryIds.add(ingredientId);
+                }
+            }
+
+            // Bit-sliced counter: slice i holds the recipes whose matched-ingredient count has bit i set
+            List<RoaringBitmap> slices = new ArrayList<>();
+            RoaringBitmap candidates = new RoaringBitmap();
+            for (int ingredientId : pantryIds) {
+                RoaringBitmap carry = recipesByIngredient.get(ingredientId);
+                candidates = RoaringBitmap.or(candidates, carry);
+                for (int level = 0; !carry.isEmpty(); level++) {
+                    if (level == slices.size()) {
+                        slices.add(carry.copy());
+                        break;
+                    }
+                    RoaringBitmap slice = slices.get(level);
+                    slices.set(level, RoaringBitmap.xor(slice, carry));
+                    carry = RoaringBitmap.and(slice, carry);
+                }
+            }
+
+            List<int[]> matches = new ArrayList<>();
+            candidates.forEach(recipeId -> {
+                int matched = 0;
+                for (int level = 0; level < slices.size(); level++) {
+                    if (slices.get(level).contains(recipeId)) {
+                        matched |= 1 << level;
+                    }
+                }
+                int missing = ingredientsByRecipe.get(recipeId).length - matched;
+                if (missing <= maxMissing) {
+                    matches.add(new int[]{recipeId, missing, matched});
+                }
+            });
+            matches.sort(Comparator.<int[]>comparingInt(match -> match[1]).thenComparingInt(match -> -match[2]));
+
+            List<PantryMatch> results = new ArrayList<>();
+            for (int[] match : matches.subList(0, Math.min(limit, matches.size()))) {
+                List<String> missingIngredients = new ArrayList<>();
+                for (int ingredientId : ingredientsByRecipe.get(match[0])) {
+                    if (!pantryIds.contains(ingredientId)) {
+                        missingIngredients.add(ingredientNames.get(ingredientId));
+                    }
+                }
+                results.add(new PantryMatch((long) match[0], missingIngredients));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(Long recipeId, Set<String> ingredients) {
+        int key = Math.toIntExact(recipeId);
+        int[] ids = new int[ingredients.size()];
+        int i = 0;
+        for (String ingredient : ingredients) {
+            int ingredientId = ingredientIds.computeIfAbsent(ingredient, name -> {
+                ingredientNames.add(name);
+                recipesByIngredient.add(new RoaringBitmap());
+                return ingredientNames.size() - 1;
+            });
+            recipesByIngredient.get(ingredientId).add(key);
+            ids[i++] = ingredientId;
+        }
+        ingredientsByRecipe.put(key, ids);
+    }
+
+    private void removeLocked(Long recipeId) {
+        int key = Math.toIntExact(recipeId);
+        int[] ids = ingredientsByRecipe.remove(key);
+        if (ids == null) {
+            return;
+        }
+        for (int ingredientId : ids) {
+            recipesByIngredient.get(ingredientId).remove(key);
+        }
+    }
+
+    // Ingredient lines of a recipe's ingredients text
+    static List<String> lines(String ingredients) {
+        List<String> lines = new ArrayList<>();
+        if (ingredients == null) {
+            return lines;
+        }
+        for (String line : LINE_SEPARATOR.split(ingredients)) {
+            if (!line.isBlank()) {
+                lines.add(line.trim());
+            }
+        }
+        return lines;
+    }
+
+    private static Set<String> normalizeAll(String ingredients) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String line : lines(ingredients)) {
+            String name = normalize(line);
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    // "2 cups Tomatoes (chopped)" -> "tomato"
+    static String normalize(String line) {
+        String cleaned = line.toLowerCase(Locale.ROOT)
+                .replaceAll("\\(.*?\\)", " ")
+                .replaceAll("[^\\p{L}\\s]", " ")
+                .trim();
+        if (cleaned.isEmpty()) {
+            return cleaned;
+        }
+
+        String[] words = cleaned.split("\\s+");
+        int start = 0;
+        while (start < words.length - 1 && QUANTITY_WORDS.contains(words[start])) {
+            start++;
+        }
+        String last = words[words.length - 1];
+        if (last.endsWith("ies") && last.length() > 4) {
+            words[words.length - 1] = last.substring(0, last.length() - 3) + "y";
+        } else if (last.endsWith("oes") && last.length() > 4) {
+            words[words.length - 1] = last.substring(0, last.length() - 2);
+        } else if (last.endsWith("s") && !last.endsWith("ss") && last.length() > 3) {
+            words[words.length - 1] = last.substring(0, last.length() - 1);
+        }
+        return String.join(" ", Arrays.copyOfRange(words, start, words.length));
+    }
+}
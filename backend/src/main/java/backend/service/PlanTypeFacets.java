@@ -0,0 +1,140 @@
+package backend.service;
+
+import backend.repository.cookingPlansRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Plan counts per planType, kept in memory and adjusted on every write instead of running GROUP BY per request
+@Service
+public class PlanTypeFacets {
+
+    @Autowired
+    private cookingPlansRepository cookingPlansRepository;
+
+    // Keyed case- and space-insensitively, the way MySQL's default collation compares planType
+    private final Map<String, Facet> facets = new HashMap<>();
+    private long total;
+
+    // Writes seen while a rebuild's query runs, replayed onto its result since the query may have missed them
+    private List<Change> changesDuringRebuild;
+
+    private static final class Facet {
+        private String label; // Latest spelling seen
+        private long count;
+
+        Facet(String label) {
+            this.label = label;
+        }
+    }
+
+    private record Change(String planType, long delta) {
+    }
+
+    // Warm up from one GROUP BY at startup, and periodically to undo any drift from failed writes
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.plans.facets.reconcile-interval-ms:3600000}",
+            fixedDelayString = "${app.plans.facets.reconcile-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        synchronized (facets) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+        List<Object[]> rows;
+        try {
+            rows = cookingPlansRepository.countByPlanType();
+        } catch (RuntimeException e) {
+            synchronized (facets) {
+                changesDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (facets) {
+            facets.clear();
+            total = 0;
+            for (Object[] row : rows) {
+                add((String) row[0], ((Number) row[1]).longValue());
+            }
+            for (Change change : changesDuringRebuild) {
+                add(change.planType(), change.delta());
+            }
+            changesDuringRebuild = null;
+        }
+    }
+
+    public void created(String planType) {
+        synchronized (facets) {
+            apply(planType, 1);
+        }
+    }
+
+    public void updated(String oldType, String newType) {
+        synchronized (facets) {
+            apply(oldType, -1);
+            apply(newType, 1);
+        }
+    }
+
+    public void deleted(String planType) {
+        synchronized (facets) {
+            apply(planType, -1);
+        }
+    }
+
+    public long count(String planType) {
+        synchronized (facets) {
+            if (planType == null) {
+                return total;
+            }
+            Facet facet = facets.get(key(planType));
+            return facet == null ? 0 : facet.count;
+        }
+    }
+
+    // Types by descending count; plans without a type are reported with a null type
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        synchronized (facets) {
+            for (Facet facet : facets.values()) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("type", facet.label.isEmpty() ? null : facet.label);
+                entry.put("count", facet.count);
+                result.add(entry);
+            }
+        }
+        result.sort((a, b) -> Long.compare((Long) b.get("count"), (Long) a.get("count")));
+        return result;
+    }
+
+    private void apply(String planType, long delta) {
+        add(planType, delta);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(new Change(planType, delta));
+        }
+    }
+
+    private void add(String planType, long delta) {
+        String key = key(planType);
+        Facet facet = facets.computeIfAbsent(key, k -> new Facet(planType == null ? "" : planType.trim()));
+        if (delta > 0 && planType != null) {
+            facet.label = planType.trim();
+        }
+        facet.count += delta;
+        total += delta;
+        if (facet.count <= 0) {
+            facets.remove(key);
+        }
+    }
+
+    private static String key(String planType) {
+        return planType == null ? "" : planType.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,182 @@
+package backend.service;
+
+import backend.model.RecipeManagementModel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Streams NDJSON recipes into MySQL in JDBC batches, collecting per-line errors instead of aborting
+@Service
+public class RecipeImportService {
+
+    private static final String INSERT_SQL = "INSERT INTO recipe_management_model "
+            + "(title, description, ingredients, steps, images, video, author_id, version) VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RecipeSearchIndex recipeSearchIndex;
+
+    @Autowired
+    private IngredientIndex ingredientIndex;
+
+    @Autowired
+    private TableChangeCounter tableChangeCounter;
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    public record LineError(long line, String message) {
+    }
+
+    public record ImportResult(long imported, long failed, List<LineError> errors) {
+    }
+
+    // Every imported recipe is by authorId, the importing user (null when unknown), as when creating one recipe
+    public ImportResult importNdjson(InputStream body, int batchSize, Long authorId) throws IOException {
+        ImportState state = new ImportState();
+        List<RecipeManagementModel> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    RecipeManagementModel recipe = objectMapper.readValue(line, RecipeManagementModel.class);
+                    recipe.setRecipeId(null); // Ids always come from the database
+                    if (recipe.getAuthorId() != null && !recipe.getAuthorId().equals(authorId)) {
+                        state.fail(lineNumber, "authorId must be the importing user");
+                        continue;
+                    }
+                    recipe.setAuthorId(authorId);
+                    batch.add(recipe);
+                    batchLines.add(lineNumber);
+                } catch (JsonProcessingException e) {
+                    state.fail(lineNumber, "Invalid recipe JSON: " + e.getOriginalMessage());
+                    continue;
+                }
+                if (batch.size() >= batchSize) {
+                    flush(batch, batchLines, state);
+                }
+            }
+        }
+        flush(batch, batchLines, state);
+        return new ImportResult(state.imported, state.failed, state.errors);
+    }
+
+    private void flush(List<RecipeManagementModel> batch, List<Long> batchLines, ImportState state) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            insertBatch(batch);
+            state.imported += batch.size();
+        } catch (DataAccessException batchFailure) {
+            // The batch was rolled back; insert row by row to find the bad lines
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    insertBatch(List.of(batch.get(i)));
+                    state.imported++;
+                } catch (DataAccessException rowFailure) {
+                    state.fail(batchLines.get(i), rowFailure.getMostSpecificCause().getMessage());
+                    batch.get(i).setRecipeId(null);
+                }
+            }
+        }
+
+        for (RecipeManagementModel recipe : batch) {
+            if (recipe.getRecipeId() != null) {
+                // Same as creating a recipe, so the upload sweeper does not see its stored uploads as unreferenced
+                uploadStore.updateReferences(null, recipe.getImages());
+                uploadStore.updateReferences(null, recipe.getVideo());
+                recipeSearchIndex.index(recipe);
+                ingredientIndex.index(recipe);
+                feedService.recipeCreated(recipe);
+            }
+        }
+        tableChangeCounter.changed(TableChangeCounter.RECIPES);
+        batch.clear();
+        batchLines.clear();
+    }
+
+    // One transaction per batch; with rewriteBatchedStatements the driver sends it as a multi-row INSERT
+    private void insertBatch(List<RecipeManagementModel> recipes) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        RecipeManagementModel recipe = recipes.get(i);
+                        statement.setString(1, recipe.getTitle());
+                        statement.setString(2, recipe.getDescription());
+                        statement.setString(3, recipe.getIngredients());
+                        statement.setString(4, recipe.getSteps());
+                        statement.setString(5, recipe.getImages());
+                        statement.setString(6, recipe.getVideo());
+                        statement.setObject(7, recipe.getAuthorId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return recipes.size();
+                    }
+                },
+                keyHolder));
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < recipes.size() && i < keys.size(); i++) {
+            Object key = keys.get(i).values().iterator().next();
+            recipes.get(i).setRecipeId(((Number) key).longValue());
+        }
+    }
+
+    private static final class ImportState {
+        private long imported;
+        private long failed;
+        private final List<LineError> errors = new ArrayList<>();
+
+        void fail(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new LineError(line, message));
+            }
+        }
+    }
+}
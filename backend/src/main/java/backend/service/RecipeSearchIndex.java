@@ -0,0 +1,308 @@
+package backend.service;
+
+import backend.model.RecipeManagementModel;
+import backend.repository.RecipeManagementRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// In-memory inverted index over recipe text, ranked with BM25
+@Service
+public class RecipeSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Autowired
+    private RecipeManagementRepository recipeManagementRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<PostingList> postings = new ArrayList<>();
+    private final Map<Long, Integer> slotsByRecipeId = new HashMap<>();
+
+    // Slots and term ids freed by removals, handed out again before new ones are taken
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private final ArrayDeque<Integer> freeTermIds = new ArrayDeque<>();
+
+    // Per-slot document data
+    private long[] recipeIds = new long[1024];
+    private int[] docLengths = new int[1024];
+    private int[][] docTerms = new int[1024][];
+    private int slotCount;
+    private int liveDocs;
+    private long totalLength;
+
+    // Load every recipe into the index once the application has started
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            termIds.clear();
+            postings.clear();
+            slotsByRecipeId.clear();
+            freeSlots.clear();
+            freeTermIds.clear();
+            recipeIds = new long[1024];
+            docLengths = new int[1024];
+            docTerms = new int[1024][];
+            slotCount = 0;
+            liveDocs = 0;
+            totalLength = 0;
+
+            try (Stream<RecipeManagementModel> recipes = recipeManagementRepository.streamAllOrderByRecipeId()) {
+                recipes.forEach(recipe -> {
+                    addLocked(recipe.getRecipeId(), countTerms(recipe));
+                    entityManager.detach(recipe);
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Add or replace a recipe in the index
+    public void index(RecipeManagementModel recipe) {
+        Map<String, Integer> termCounts = countTerms(recipe);
+        lock.writeLock().lock();
+        try {
+            removeLocked(recipe.getRecipeId());
+            addLocked(recipe.getRecipeId(), termCounts);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Recipe ids matching any query term, best BM25 score first
+    public List<Long> search(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0 || queryTerms.isEmpty()) {
+                return List.of();
+            }
+
+            double averageLength = (double) totalLength / liveDocs;
+            List<PostingList> matched = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                Integer termId = termIds.get(term);
+                if (termId != null) {
+                    matched.add(postings.get(termId));
+                }
+            }
+            double[] idfs = new double[matched.size()];
+            for (int t = 0; t < idfs.length; t++) {
+                int documentFrequency = matched.get(t).size;
+                idfs[t] = Math.log(1 + (liveDocs - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            }
+
+            // Walk the sorted posting lists side by side, scoring one matching slot at a time,
+            // and keep the top results in a min-heap of bounded size
+            PriorityQueue<ScoredSlot> top = new PriorityQueue<>(limit + 1, (a, b) -> Float.compare(a.score(), b.score()));
+            int[] cursors = new int[matched.size()];
+            while (true) {
+                int slot = Integer.MAX_VALUE;
+                for (int t = 0; t < cursors.length; t++) {
+                    PostingList postingList = matched.get(t);
+                    if (cursors[t] < postingList.size) {
+                        slot = Math.min(slot, postingList.slots[cursors[t]]);
+                    }
+                }
+                if (slot == Integer.MAX_VALUE) {
+                    break;
+                }
+                double norm = K1 * (1 - B + B * docLengths[slot] / averageLength);
+                float score = 0;
+                for (int t = 0; t < cursors.length; t++) {
+                    PostingList postingList = matched.get(t);
+                    if (cursors[t] < postingList.size && postingList.slots[cursors[t]] == slot) {
+                        int frequency = postingList.frequencies[cursors[t]++];
+                        score += (float) (idfs[t] * frequency * (K1 + 1) / (frequency + norm));
+                    }
+                }
+                if (score > 0) {
+                    top.offer(new ScoredSlot(slot, score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+
+            Long[] ranked = new Long[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = recipeIds[top.poll().slot()];
+            }
+            return Arrays.asList(ranked);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(Long recipeId, Map<String, Integer> termCounts) {
+        int slot;
+        if (freeSlots.isEmpty()) {
+            slot = slotCount++;
+            ensureCapacity(slotCount);
+        } else {
+            slot = freeSlots.pop();
+        }
+
+        int[] terms = new int[termCounts.size()];
+        int length = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
+            int termId = termIds.computeIfAbsent(entry.getKey(), this::newTermId);
+            postings.get(termId).add(slot, entry.getValue());
+            terms[i++] = termId;
+            length += entry.getValue();
+        }
+
+        recipeIds[slot] = recipeId;
+        docLengths[slot] = length;
+        docTerms[slot] = terms;
+        slotsByRecipeId.put(recipeId, slot);
+        liveDocs++;
+        totalLength += length;
+    }
+
+    private void removeLocked(Long recipeId) {
+        Integer slot = slotsByRecipeId.remove(recipeId);
+        if (slot == null) {
+            return;
+        }
+        for (int termId : docTerms[slot]) {
+            PostingList postingList = postings.get(termId);
+            postingList.remove(slot);
+            if (postingList.size == 0) {
+                // No recipe uses the term any more; forget it so removed vocabulary does not pile up
+                termIds.remove(postingList.term);
+                postings.set(termId, null);
+                freeTermIds.push(termId);
+            }
+        }
+        totalLength -= docLengths[slot];
+        liveDocs--;
+        recipeIds[slot] = 0;
+        docLengths[slot] = 0;
+        docTerms[slot] = null;
+        freeSlots.push(slot);
+    }
+
+    private int newTermId(String term) {
+        if (freeTermIds.isEmpty()) {
+            postings.add(new PostingList(term));
+            return postings.size() - 1;
+        }
+        int termId = freeTermIds.pop();
+        postings.set(termId, new PostingList(term));
+        return termId;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > recipeIds.length) {
+            int newLength = Math.max(capacity, recipeIds.length * 2);
+            recipeIds = Arrays.copyOf(recipeIds, newLength);
+            docLengths = Arrays.copyOf(docLengths, newLength);
+            docTerms = Arrays.copyOf(docTerms, newLength);
+        }
+    }
+
+    private static Map<String, Integer> countTerms(RecipeManagementModel recipe) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String field : new String[]{recipe.getTitle(), recipe.getDescription(), recipe.getIngredients(), recipe.getSteps()}) {
+            for (String token : tokenize(field)) {
+                counts.merge(token, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private record ScoredSlot(int slot, float score) {
+    }
+
+    // Sorted slot ids with their term frequencies, stored in parallel int arrays
+    private static final class PostingList {
+        private final String term;
+        private int[] slots = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        PostingList(String term) {
+            this.term = term;
+        }
+
+        void add(int slot, int frequency) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            // New slots append at the end; a reused slot may land in the middle
+            int index = size;
+            if (size > 0 && slots[size - 1] > slot) {
+                index = -Arrays.binarySearch(slots, 0, size, slot) - 1;
+                System.arraycopy(slots, index, slots, index + 1, size - index);
+                System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+            }
+            slots[index] = slot;
+            frequencies[index] = frequency;
+            size++;
+        }
+
+        void remove(int slot) {
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+            System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+            size--;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package backend.service;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Compressed int set split into 2^16-value chunks, each stored as a sorted array or a 1024-word bitmap
+final class RoaringBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[0];
+    private Container[] containers = new Container[0];
+    private int size;
+
+    void add(int value) {
+        char high = (char) (value >>> 16);
+        int index = findKey(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new Container());
+        }
+        containers[index].add((char) value);
+    }
+
+    void remove(int value) {
+        int index = findKey((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        containers[index].remove((char) value);
+        if (containers[index].cardinality == 0) {
+            removeContainer(index);
+        }
+    }
+
+    boolean contains(int value) {
+        int index = findKey((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int base = keys[i] << 16;
+            containers[i].forEach(low -> action.accept(base | low));
+        }
+    }
+
+    RoaringBitmap copy() {
+        RoaringBitmap copy = new RoaringBitmap();
+        copy.keys = Arrays.copyOf(keys, size);
+        copy.containers = new Container[size];
+        for (int i = 0; i < size; i++) {
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    static RoaringBitmap and(RoaringBitmap a, RoaringBitmap b) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(a.keys[i], Container.combine(a.containers[i], b.containers[j], Op.AND));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    static RoaringBitmap or(RoaringBitmap a, RoaringBitmap b) {
+        return merge(a, b, Op.OR);
+    }
+
+    static RoaringBitmap xor(RoaringBitmap a, RoaringBitmap b) {
+        return merge(a, b, Op.XOR);
+    }
+
+    private static RoaringBitmap merge(RoaringBitmap a, RoaringBitmap b, Op op) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.appendIfNotEmpty(a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.appendIfNotEmpty(b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.appendIfNotEmpty(a.keys[i], Container.combine(a.containers[i], b.containers[j], op));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private int findKey(char high) {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    private void appendIfNotEmpty(char high, Container container) {
+        if (container.cardinality > 0) {
+            insertContainer(size, high, container);
+        }
+    }
+
+    private void insertContainer(int index, char high, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    private enum Op {
+        AND, OR, XOR
+    }
+
+    // Sorted char array while sparse, switching to a bitmap once it holds more than ARRAY_MAX values
+    private static final class Container {
+        private char[] values = new char[4];
+        private long[] words;
+        private int cardinality;
+
+        boolean contains(char value) {
+            if (words != null) {
+                return (words[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        void add(char value) {
+            if (words != null) {
+                long before = words[value >>> 6];
+                words[value >>> 6] = before | (1L << value);
+                if (before != words[value >>> 6]) {
+                    cardinality++;
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                add(value);
+                return;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+        }
+
+        void remove(char value) {
+            if (words != null) {
+                long before = words[value >>> 6];
+                words[value >>> 6] = before & ~(1L << value);
+                if (before != words[value >>> 6]) {
+                    cardinality--;
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+        }
+
+        void forEach(IntConsumer action) {
+            if (words != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(values[i]);
+                }
+            }
+        }
+
+        Container copy() {
+            Container copy = new Container();
+            copy.cardinality = cardinality;
+            if (words != null) {
+                copy.words = words.clone();
+            } else {
+                copy.values = Arrays.copyOf(values, Math.max(4, cardinality));
+            }
+            return copy;
+        }
+
+        static Container combine(Container a, Container b, Op op) {
+            if (a.words == null && b.words == null) {
+                return combineArrays(a, b, op);
+            }
+            if (a.words == null || b.words == null) {
+                return a.words == null ? combineArrayWithBitmap(a, b, op) : combineArrayWithBitmap(b, a, op);
+            }
+            long[] result = new long[WORDS];
+            int cardinality = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long word = switch (op) {
+                    case AND -> a.words[w] & b.words[w];
+                    case OR -> a.words[w] | b.words[w];
+                    case XOR -> a.words[w] ^ b.words[w];
+                };
+                result[w] = word;
+                cardinality += Long.bitCount(word);
+            }
+
+            Container container = new Container();
+            container.words = result;
+            container.cardinality = cardinality;
+            if (cardinality <= ARRAY_MAX) {
+                container.toArray();
+            }
+            return container;
+        }
+
+        // One pass over both sorted arrays; only a union or difference can outgrow an array
+        private static Container combineArrays(Container a, Container b, Op op) {
+            char[] result = new char[op == Op.AND ? Math.min(a.cardinality, b.cardinality) : a.cardinality + b.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < a.cardinality && j < b.cardinality) {
+                char left = a.values[i];
+                char right = b.values[j];
+                if (left == right) {
+                    if (op != Op.XOR) {
+                        result[count++] = left;
+                    }
+                    i++;
+                    j++;
+                } else if (left < right) {
+                    if (op != Op.AND) {
+                        result[count++] = left;
+                    }
+                    i++;
+                } else {
+                    if (op != Op.AND) {
+                        result[count++] = right;
+                    }
+                    j++;
+                }
+            }
+            if (op != Op.AND) {
+                System.arraycopy(a.values, i, result, count, a.cardinality - i);
+                count += a.cardinality - i;
+                System.arraycopy(b.values, j, result, count, b.cardinality - j);
+                count += b.cardinality - j;
+            }
+
+            Container container = new Container();
+            container.values = count == result.length && count >= 4 ? result : Arrays.copyOf(result, Math.max(4, count));
+            container.cardinality = count;
+            if (count > ARRAY_MAX) {
+                container.toBitmap();
+            }
+            return container;
+        }
+
+        // Probes the bitmap per array value instead of expanding the array into 1024 words
+        private static Container combineArrayWithBitmap(Container array, Container bitmap, Op op) {
+            Container container = new Container();
+            if (op == Op.AND) {
+                char[] result = new char[Math.max(4, array.cardinality)];
+                int count = 0;
+                for (int i = 0; i < array.cardinality; i++) {
+                    if (bitmap.contains(array.values[i])) {
+                        result[count++] = array.values[i];
+                    }
+                }
+                container.values = result;
+                container.cardinality = count;
+                return container;
+            }
+
+            long[] words = bitmap.words.clone();
+            int cardinality = bitmap.cardinality;
+            for (int i = 0; i < array.cardinality; i++) {
+                char value = array.values[i];
+                long bit = 1L << value;
+                boolean present = (words[value >>> 6] & bit) != 0;
+                if (op == Op.XOR) {
+                    words[value >>> 6] ^= bit;
+                    cardinality += present ? -1 : 1;
+                } else if (!present) {
+                    words[value >>> 6] |= bit;
+                    cardinality++;
+                }
+            }
+            container.words = words;
+            container.cardinality = cardinality;
+            if (cardinality <= ARRAY_MAX) {
+                container.toArray();
+            }
+            return container;
+        }
+
+        private long[] asWords() {
+            if (words != null) {
+                return words;
+            }
+            long[] bits = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            return bits;
+        }
+
+        private void toBitmap() {
+            words = asWords();
+            values = null;
+        }
+
+        private void toArray() {
+            char[] array = new char[Math.max(4, cardinality)];
+            int[] index = {0};
+            forEach(value -> array[index[0]++] = (char) value);
+            values = array;
+            words = null;
+        }
+    }
+}
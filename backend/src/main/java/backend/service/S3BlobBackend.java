@@ -0,0 +1,258 @@
+package backend.service;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+// Blobs in an S3-compatible bucket (AWS S3, MinIO, ...), using path-style URLs and SigV4-signed requests
+public class S3BlobBackend implements BlobBackend {
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter AMZ_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final URI endpoint;
+    private final String region;
+    private final String bucket;
+    private final String accessKey;
+    private final String secretKey;
+    private final Duration presignTtl;
+    private final HttpClient httpClient;
+    private final Clock clock;
+
+    public S3BlobBackend(URI endpoint, String region, String bucket, String accessKey, String secretKey, Duration presignTtl) {
+        this(endpoint, region, bucket, accessKey, secretKey, presignTtl, Clock.systemUTC());
+    }
+
+    S3BlobBackend(URI endpoint, String region, String bucket, String accessKey, String secretKey, Duration presignTtl, Clock clock) {
+        this.clock = clock;
+        this.endpoint = endpoint;
+        this.region = region;
+        this.bucket = bucket;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.presignTtl = presignTtl;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        String contentType = MediaTypeFactory.getMediaType(key).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        HttpRequest request = signed("PUT", key, Map.of("content-type", contentType))
+                .PUT(HttpRequest.BodyPublishers.ofFile(source))
+                .build();
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 PUT " + key + " failed with " + response.statusCode() + ": " + response.body());
+        }
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        HttpRequest request = signed("HEAD", key, Map.of())
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        int status = send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status == 404) {
+            return false;
+        }
+        if (status / 100 != 2) {
+            throw new IOException("S3 HEAD " + key + " failed with " + status);
+        }
+        return true;
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        HttpRequest request = signed("GET", key, Map.of()).GET().build();
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() / 100 != 2) {
+            response.body().close();
+            throw new IOException("S3 GET " + key + " failed with " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpRequest request = signed("DELETE", key, Map.of()).DELETE().build();
+        int status = send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status / 100 != 2 && status != 404) {
+            throw new IOException("S3 DELETE " + key + " failed with " + status);
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    // Query-string signed GET, so browsers fetch the object straight from the bucket
+    @Override
+    public Optional<URI> downloadUrl(String key) {
+        ZonedDateTime now = ZonedDateTime.now(clock).withZoneSameInstant(ZoneOffset.UTC);
+        String path = objectPath(key);
+        String scope = scope(now, region);
+
+        Map<String, String> query = new TreeMap<>();
+        query.put("X-Amz-Algorithm", ALGORITHM);
+        query.put("X-Amz-Credential", accessKey + "/" + scope);
+        query.put("X-Amz-Date", now.format(AMZ_DATE));
+        query.put("X-Amz-Expires", Long.toString(presignTtl.toSeconds()));
+        query.put("X-Amz-SignedHeaders", "host");
+        String canonicalQuery = canonicalQuery(query);
+
+        String canonicalRequest = canonicalRequest("GET", path, canonicalQuery, new TreeMap<>(Map.of("host", host())), UNSIGNED_PAYLOAD);
+        String signature = signature(secretKey, region, now, canonicalRequest);
+        return Optional.of(URI.create(baseUrl() + path + "?" + canonicalQuery + "&X-Amz-Signature=" + signature));
+    }
+
+    // Header-signed request; the payload is declared unsigned so files can be streamed without hashing them twice
+    private HttpRequest.Builder signed(String method, String key, Map<String, String> extraHeaders) {
+        ZonedDateTime now = ZonedDateTime.now(clock).withZoneSameInstant(ZoneOffset.UTC);
+        String path = objectPath(key);
+        String scope = scope(now, region);
+
+        Map<String, String> headers = new TreeMap<>(extraHeaders);
+        headers.put("host", host());
+        headers.put("x-amz-content-sha256", UNSIGNED_PAYLOAD);
+        headers.put("x-amz-date", now.format(AMZ_DATE));
+
+        String signedHeaders = String.join(";", headers.keySet());
+        String canonicalRequest = canonicalRequest(method, path, "", headers, UNSIGNED_PAYLOAD);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl() + path))
+                .timeout(Duration.ofMinutes(5))
+                .header("Authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope
+                        + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature(secretKey, region, now, canonicalRequest));
+        headers.forEach((name, value) -> {
+            if (!name.equals("host")) { // Set by the client from the URI
+                builder.header(name, value);
+            }
+        });
+        return builder;
+    }
+
+    // Header names in sortedHeaders must be lower case
+    static String canonicalRequest(String method, String path, String canonicalQuery,
+                                   Map<String, String> sortedHeaders, String payloadHash) {
+        StringBuilder canonicalHeaders = new StringBuilder();
+        for (Map.Entry<String, String> header : sortedHeaders.entrySet()) {
+            canonicalHeaders.append(header.getKey()).append(':').append(header.getValue().trim()).append('\n');
+        }
+        return method + "\n" + path + "\n" + canonicalQuery + "\n" + canonicalHeaders + "\n"
+                + String.join(";", sortedHeaders.keySet()) + "\n" + payloadHash;
+    }
+
+    static String signature(String secretKey, String region, ZonedDateTime now, String canonicalRequest) {
+        String stringToSign = ALGORITHM + "\n" + now.format(AMZ_DATE) + "\n" + scope(now, region) + "\n"
+                + hex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), now.format(AMZ_DAY));
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, SERVICE);
+        signingKey = hmac(signingKey, "aws4_request");
+        return hex(hmac(signingKey, stringToSign));
+    }
+
+    private static String scope(ZonedDateTime now, String region) {
+        return now.format(AMZ_DAY) + "/" + region + "/" + SERVICE + "/aws4_request";
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling S3", e);
+        }
+    }
+
+    private String objectPath(String key) {
+        return "/" + encode(bucket, false) + "/" + encode(key, true);
+    }
+
+    private String baseUrl() {
+        return endpoint.getScheme() + "://" + host();
+    }
+
+    private String host() {
+        return endpoint.getPort() == -1 ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort();
+    }
+
+    static String canonicalQuery(Map<String, String> sortedParameters) {
+        StringBuilder query = new StringBuilder();
+        for (Map.Entry<String, String> parameter : sortedParameters.entrySet()) {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(encode(parameter.getKey(), false)).append('=').append(encode(parameter.getValue(), false));
+        }
+        return query.toString();
+    }
+
+    // RFC 3986 encoding as SigV4 expects: everything but unreserved characters (and '/' in object keys)
+    private static String encode(String value, boolean keepSlash) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
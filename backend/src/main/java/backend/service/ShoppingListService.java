@@ -0,0 +1,215 @@
+package backend.service;
+
+import backend.model.RecipeManagementModel;
+import backend.model.cookingPlansModel;
+import backend.repository.RecipeManagementRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Consolidated shopping list for a cooking plan, memoized until the plan or one of its recipes changes
+@Service
+public class ShoppingListService {
+
+    // Below this many recipes a sequential merge is faster than splitting the work
+    private static final int PARALLEL_THRESHOLD = 16;
+
+    // "1", "1.5", "1/2", "1 1/2", "2-3" (the upper bound is used), optionally glued to a unit as in "200g"
+    private static final Pattern QUANTITY = Pattern.compile(
+            "^(\\d+(?:\\.\\d+)?(?:\\s+\\d+/\\d+)?|\\d+/\\d+)(?:\\s*(?:-|to)\\s*(\\d+(?:\\.\\d+)?|\\d+/\\d+))?\\s*");
+    // Vulgar fraction characters: 1/2, 1/4, 3/4, 1/3, 2/3, 1/8
+    private static final Map<Character, Double> UNICODE_FRACTIONS = Map.of(
+            '\u00BD', 0.5, '\u00BC', 0.25, '\u00BE', 0.75, '\u2153', 1.0 / 3, '\u2154', 2.0 / 3, '\u215B', 0.125);
+
+    private enum Dimension { MASS, VOLUME, COUNT }
+
+    // Unit spelling -> canonical unit; mass and volume are converted to grams and millilitres
+    private record Unit(String name, Dimension dimension, double factor) {
+    }
+
+    private static final Map<String, Unit> UNITS = units();
+
+    @Autowired
+    private RecipeManagementRepository recipeManagementRepository;
+
+    @Autowired
+    private EntityCache<Long, RecipeManagementModel> recipeCache;
+
+    private final ConcurrentMap<Long, ShoppingList> memo = new ConcurrentHashMap<>();
+
+    public record Item(String name, Double quantity, String unit, List<Long> recipeIds) {
+    }
+
+    // fingerprint identifies the plan version and every recipe version the list was built from
+    public record ShoppingList(Long planId, String fingerprint, List<Item> items) {
+    }
+
+    public ShoppingList forPlan(cookingPlansModel plan) {
+        List<Long> recipeIds = plan.getRecipeIds() != null ? plan.getRecipeIds() : List.of();
+        Map<Long, RecipeManagementModel> recipesById = recipeCache.getAll(recipeIds, ids ->
+                recipeManagementRepository.findAllById(ids).stream()
+                        .collect(Collectors.toMap(RecipeManagementModel::getRecipeId, Function.identity())));
+
+        List<RecipeManagementModel> recipes = new ArrayList<>();
+        StringBuilder fingerprint = new StringBuilder().append(plan.getVersion());
+        for (Long recipeId : new TreeSet<>(recipeIds)) {
+            RecipeManagementModel recipe = recipesById.get(recipeId);
+            if (recipe != null) {
+                recipes.add(recipe);
+                fingerprint.append(',').append(recipeId).append(':').append(recipe.getVersion());
+            }
+        }
+
+        ShoppingList cached = memo.get(plan.getPlanId());
+        if (cached != null && cached.fingerprint().equals(fingerprint.toString())) {
+            return cached;
+        }
+        ShoppingList built = new ShoppingList(plan.getPlanId(), fingerprint.toString(), merge(recipes));
+        memo.put(plan.getPlanId(), built);
+        return built;
+    }
+
+    public void invalidate(Long planId) {
+        memo.remove(planId);
+    }
+
+    private static List<Item> merge(Collection<RecipeManagementModel> recipes) {
+        Stream<RecipeManagementModel> stream = recipes.size() >= PARALLEL_THRESHOLD ? recipes.parallelStream() : recipes.stream();
+        Map<String, Accumulator> merged = stream
+                .flatMap(recipe -> IngredientIndex.lines(recipe.getIngredients()).stream()
+                        .map(line -> parse(recipe.getRecipeId(), line)))
+                .filter(line -> !line.name().isEmpty())
+                .collect(Collectors.toConcurrentMap(ParsedLine::key, Accumulator::new, Accumulator::merge));
+
+        return merged.values().stream()
+                .map(Accumulator::toItem)
+                .sorted(Comparator.comparing(Item::name).thenComparing(item -> item.unit() == null ? "" : item.unit()))
+                .toList();
+    }
+
+    private record ParsedLine(Long recipeId, String name, Double quantity, Unit unit) {
+        // Lines only merge when their amounts can be added up
+        String key() {
+            return name + "|" + (quantity == null ? "-" : unit == null ? "" : unit.dimension() == Dimension.COUNT ? unit.name() : unit.dimension().name());
+        }
+    }
+
+    private static final class Accumulator {
+        private final String name;
+        private final Unit unit;
+        private Double total; // In grams or millilitres for mass and volume
+        private final TreeSet<Long> recipeIds = new TreeSet<>();
+
+        Accumulator(ParsedLine line) {
+            name = line.name();
+            unit = line.unit();
+            total = line.quantity() == null ? null : line.quantity() * (unit == null ? 1 : unit.factor());
+            recipeIds.add(line.recipeId());
+        }
+
+        Accumulator merge(Accumulator other) {
+            if (total != null && other.total != null) {
+                total += other.total;
+            }
+            recipeIds.addAll(other.recipeIds);
+            return this;
+        }
+
+        Item toItem() {
+            if (total == null) {
+                return new Item(name, null, null, List.copyOf(recipeIds));
+            }
+            double quantity = total;
+            String unitName = unit == null ? null : unit.name();
+            if (unit != null && unit.dimension() == Dimension.MASS) {
+                unitName = quantity >= 1000 ? "kg" : "g";
+                quantity = quantity >= 1000 ? quantity / 1000 : quantity;
+            } else if (unit != null && unit.dimension() == Dimension.VOLUME) {
+                unitName = quantity >= 1000 ? "l" : "ml";
+                quantity = quantity >= 1000 ? quantity / 1000 : quantity;
+            }
+            return new Item(name, Math.round(quantity * 100) / 100.0, unitName, List.copyOf(recipeIds));
+        }
+    }
+
+    // "1 1/2 cups chopped onions" -> (1.5, cup, "chopped onion")
+    static ParsedLine parse(Long recipeId, String line) {
+        String rest = line.trim().toLowerCase(Locale.ROOT);
+        Double quantity = null;
+
+        Matcher matcher = QUANTITY.matcher(rest);
+        if (matcher.find()) {
+            quantity = number(matcher.group(2) != null ? matcher.group(2) : matcher.group(1));
+            rest = rest.substring(matcher.end());
+        }
+        if (!rest.isEmpty() && UNICODE_FRACTIONS.containsKey(rest.charAt(0))) {
+            quantity = (quantity == null ? 0 : quantity) + UNICODE_FRACTIONS.get(rest.charAt(0));
+            rest = rest.substring(1).trim();
+        } else if (quantity == null && (rest.startsWith("a ") || rest.startsWith("an "))) {
+            quantity = 1.0;
+            rest = rest.substring(rest.indexOf(' ') + 1);
+        }
+
+        Unit unit = null;
+        if (quantity != null) {
+            String[] words = rest.split("\\s+", 2);
+            Unit candidate = UNITS.get(words[0].replaceAll("[.,]$", ""));
+            if (candidate != null && words.length > 1) {
+                unit = candidate;
+                rest = words[1].startsWith("of ") ? words[1].substring(3) : words[1];
+            }
+        }
+        rest = rest.replaceAll("\\b(to taste|as needed|optional)\\b", " ");
+        return new ParsedLine(recipeId, IngredientIndex.normalize(rest), quantity, unit);
+    }
+
+    private static double number(String text) {
+        double value = 0;
+        for (String part : text.trim().split("\\s+")) {
+            int slash = part.indexOf('/');
+            value += slash < 0 ? Double.parseDouble(part)
+                    : Double.parseDouble(part.substring(0, slash)) / Math.max(1, Double.parseDouble(part.substring(slash + 1)));
+        }
+        return value;
+    }
+
+    private static Map<String, Unit> units() {
+        Map<String, Unit> units = new ConcurrentHashMap<>();
+        register(units, new Unit("g", Dimension.MASS, 1), "g", "gram", "grams", "gr");
+        register(units, new Unit("g", Dimension.MASS, 1000), "kg", "kilogram", "kilograms", "kgs");
+        register(units, new Unit("g", Dimension.MASS, 28.3495), "oz", "ounce", "ounces");
+        register(units, new Unit("g", Dimension.MASS, 453.592), "lb", "lbs", "pound", "pounds");
+        register(units, new Unit("ml", Dimension.VOLUME, 1), "ml", "millilitre", "millilitres", "milliliter", "milliliters");
+        register(units, new Unit("ml", Dimension.VOLUME, 1000), "l", "litre", "litres", "liter", "liters");
+        register(units, new Unit("ml", Dimension.VOLUME, 4.92892), "tsp", "teaspoon", "teaspoons");
+        register(units, new Unit("ml", Dimension.VOLUME, 14.7868), "tbsp", "tablespoon", "tablespoons", "tbs");
+        register(units, new Unit("ml", Dimension.VOLUME, 236.588), "cup", "cups");
+        register(units, new Unit("clove", Dimension.COUNT, 1), "clove", "cloves");
+        register(units, new Unit("slice", Dimension.COUNT, 1), "slice", "slices");
+        register(units, new Unit("can", Dimension.COUNT, 1), "can", "cans", "tin", "tins");
+        register(units, new Unit("pinch", Dimension.COUNT, 1), "pinch", "pinches");
+        register(units, new Unit("handful", Dimension.COUNT, 1), "handful", "handfuls");
+        register(units, new Unit("piece", Dimension.COUNT, 1), "piece", "pieces", "pcs");
+        return Map.copyOf(units);
+    }
+
+    private static void register(Map<String, Unit> units, Unit unit, String... spellings) {
+        for (String spelling : spellings) {
+            units.put(spelling, unit);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+// "People you may know": users followed by the people a user follows, ranked by how many of them do
+@Service
+public class SuggestionService {
+
+    // Ranked once per user at this size; requests for fewer are served from the same list
+    public static final int MAX_SUGGESTIONS = 50;
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingInt(Suggestion::mutualCount)
+            .thenComparing(Suggestion::userId, Comparator.reverseOrder());
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    @Value("${app.suggestions.parallel-threshold:20000}")
+    private int parallelThreshold;
+
+    private final EntityCache<Long, List<Suggestion>> cache;
+
+    public record Suggestion(long userId, int mutualCount) {
+    }
+
+    public SuggestionService(@Value("${app.suggestions.cache-size:10000}") int cacheSize,
+                             @Value("${app.suggestions.cache-ttl-seconds:600}") long cacheTtlSeconds) {
+        this.cache = new EntityCache<>("suggestions", cacheSize, cacheTtlSeconds);
+    }
+
+    public List<Suggestion> suggestions(long userId, int limit) {
+        List<Suggestion> ranked = cache.get(userId, id -> Optional.of(rank(id))).orElse(List.of());
+        return ranked.subList(0, Math.min(limit, ranked.size()));
+    }
+
+    // A follow by this user changes their own two-hop neighbourhood and that of everyone following them
+    public void followChanged(long userId) {
+        if (followGraph.followerCount(userId) > MAX_SUGGESTIONS * 100) {
+            cache.invalidateAll(); // Cheaper than invalidating that many entries one by one
+            return;
+        }
+        cache.invalidate(userId);
+        for (long followerId : followGraph.followers(userId)) {
+            cache.invalidate(followerId);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+
+    // Top MAX_SUGGESTIONS by mutual count with a bounded min-heap, best first
+    private List<Suggestion> rank(long userId) {
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(MAX_SUGGESTIONS + 1, RANKING);
+        followGraph.secondHopCounts(userId, parallelThreshold).forEach((candidate, count) -> {
+            Suggestion suggestion = new Suggestion(candidate, count);
+            if (top.size() < MAX_SUGGESTIONS) {
+                top.add(suggestion);
+            } else if (RANKING.compare(suggestion, top.peek()) > 0) {
+                top.poll();
+                top.add(suggestion);
+            }
+        });
+        List<Suggestion> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING.reversed());
+        return List.copyOf(ranked);
+    }
+}
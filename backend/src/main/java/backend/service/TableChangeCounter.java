@@ -0,0 +1,35 @@
+package backend.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-table write counters used to build list ETags without querying the database
+@Service
+public class TableChangeCounter {
+
+    public static final String RECIPES = "recipes";
+    public static final String COOKING_PLANS = "cookingPlans";
+
+    // Counters restart at zero, so tags also carry the startup time to stay unique across restarts
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    public void changed(String table) {
+        counter(table).incrementAndGet();
+    }
+
+    public String listTag(String table) {
+        return table + "-" + epoch + "-" + counter(table).get();
+    }
+
+    public static String entityTag(String table, Long id, long version) {
+        return table + "-" + id + "-v" + version;
+    }
+
+    private AtomicLong counter(String table) {
+        return counters.computeIfAbsent(table, key -> new AtomicLong());
+    }
+}
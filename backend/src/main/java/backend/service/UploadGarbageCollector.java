@@ -0,0 +1,363 @@
+package backend.service;
+
+import backend.model.UploadBlob;
+import backend.repository.UploadBlobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sweeps upload files that no recipe, plan or user points at any more, at a bounded rate
+@Service
+public class UploadGarbageCollector {
+
+    // Makes MySQL Connector/J stream rows one at a time instead of buffering the whole result
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    private static final int CANDIDATE_BATCH_SIZE = 500;
+
+    // Every column that can hold upload file names or URLs
+    private static final String[] REFERENCE_QUERIES = {
+            "SELECT images, video FROM recipe_management_model",
+            "SELECT plan_image FROM cooking_plans_model",
+            "SELECT profile_picture FROM user_model"
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Autowired
+    private UploadBlobRepository uploadBlobRepository;
+
+    @Autowired
+    private BlobBackend blobBackend;
+
+    @Value("${app.upload.store-dir:src/main/resources/static/uploads/}")
+    private String storeDir;
+
+    @Value("${app.upload.staging-dir:src/main/resources/upload-staging/}")
+    private String stagingDir;
+
+    // "quarantine" moves orphans aside for quarantine-days before deleting them; "delete" removes them at once
+    @Value("${app.upload.gc.mode:quarantine}")
+    private String mode;
+
+    @Value("${app.upload.gc.quarantine-dir:src/main/resources/upload-quarantine/}")
+    private String quarantineDir;
+
+    @Value("${app.upload.gc.quarantine-days:7}")
+    private long quarantineDays;
+
+    // Files younger than this are never touched, so uploads not yet saved on a recipe, plan or user survive
+    @Value("${app.upload.gc.grace-hours:24}")
+    private long graceHours;
+
+    @Value("${app.upload.gc.max-removals-per-second:20}")
+    private int maxRemovalsPerSecond;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong filesRemoved = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private final AtomicLong quarantineBytesDeleted = new AtomicLong();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @Scheduled(initialDelayString = "${app.upload.gc.initial-delay-ms:600000}",
+            fixedDelayString = "${app.upload.gc.interval-ms:21600000}")
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    // Returns false when a sweep is already running
+    public boolean sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            SweepRun run = new SweepRun(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(graceHours));
+            run.referenced = referencedFileNames();
+            sweepUploads(run);
+            sweepUnreferencedBlobs(run);
+            sweepStaging(run);
+            sweepQuarantine(run);
+
+            runs.incrementAndGet();
+            filesRemoved.addAndGet(run.filesRemoved);
+            bytesReclaimed.addAndGet(run.bytesReclaimed);
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("startedAt", run.startedAt);
+            summary.put("durationMillis", System.currentTimeMillis() - run.startedAt);
+            summary.put("referencedNames", run.referenced.size());
+            summary.put("filesScanned", run.filesScanned);
+            summary.put("filesRemoved", run.filesRemoved);
+            summary.put("bytesReclaimed", run.bytesReclaimed);
+            summary.put("errors", run.errors);
+            lastRun = summary;
+        } catch (IOException e) {
+            System.err.println("Upload sweep failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+        }
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", mode);
+        stats.put("running", running.get());
+        stats.put("runs", runs.get());
+        stats.put("filesRemoved", filesRemoved.get());
+        stats.put("bytesReclaimed", bytesReclaimed.get());
+        stats.put("quarantineBytesDeleted", quarantineBytesDeleted.get());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    // File names from every reference column, streamed so memory grows with names rather than rows
+    private Set<String> referencedFileNames() {
+        Set<String> names = new HashSet<>();
+        for (String sql : REFERENCE_QUERIES) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(MYSQL_STREAMING_FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) row -> {
+                for (int column = 1; column <= row.getMetaData().getColumnCount(); column++) {
+                    names.addAll(UploadStore.fileNames(row.getString(column)));
+                }
+            });
+        }
+        return names;
+    }
+
+    private void sweepUploads(SweepRun run) throws IOException, InterruptedException {
+        Path root = Paths.get(storeDir).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Set<Path> skipped = Set.of(
+                Paths.get(stagingDir).toAbsolutePath().normalize(),
+                Paths.get(quarantineDir).toAbsolutePath().normalize());
+
+        walk(root, run, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                return skipped.contains(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                run.filesScanned++;
+                // Variants share their original's name, so they live and die with it
+                String name = file.getFileName().toString();
+                if (name.startsWith(".") || run.referenced.contains(name)
+                        || attributes.lastModifiedTime().toMillis() >= run.cutoff) {
+                    return FileVisitResult.CONTINUE;
+                }
+                run.pace();
+                if (UploadStore.isStoredName(name)) {
+                    uploadStore.removeIfUnreferenced(name, run.cutoff, () -> remove(root, file, attributes.size(), run));
+                } else {
+                    remove(root, file, attributes.size(), run);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    // Stored blobs whose reference count is zero, for backends the file walk cannot see (e.g. S3).
+    // The count only nominates candidates: the column scan decides, so a wrong count never removes a referenced file
+    private void sweepUnreferencedBlobs(SweepRun run) throws IOException, InterruptedException {
+        String after = "";
+        List<UploadBlob> candidates;
+        do {
+            candidates = uploadBlobRepository.findUnreferencedAfter(run.cutoff, after, Limit.of(CANDIDATE_BATCH_SIZE));
+            for (UploadBlob candidate : candidates) {
+                after = candidate.getDigest();
+                String key = UploadStore.keyFor(candidate.getFileName());
+                if (blobBackend.localPath(key).isPresent() || run.referenced.contains(candidate.getFileName())) {
+                    continue; // Local files are handled by sweepUploads
+                }
+                run.filesScanned++;
+                try {
+                    run.pace();
+                    uploadStore.removeIfUnreferenced(candidate.getFileName(), run.cutoff,
+                            () -> removeBlob(key, candidate.getSize(), run));
+                } catch (SweepInterrupted e) {
+                    throw (InterruptedException) e.getCause();
+                } catch (IOException e) {
+                    System.err.println("Upload sweep skipped " + key + ": " + e.getMessage());
+                    run.errors++;
+                }
+            }
+        } while (candidates.size() == CANDIDATE_BATCH_SIZE);
+    }
+
+    // Temp files from uploads that died half-way
+    private void sweepStaging(SweepRun run) throws IOException, InterruptedException {
+        deleteOlderThan(Paths.get(stagingDir), run.cutoff, run, false);
+    }
+
+    private void sweepQuarantine(SweepRun run) throws IOException, InterruptedException {
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(quarantineDays);
+        deleteOlderThan(Paths.get(quarantineDir), cutoff, run, true);
+    }
+
+    private void deleteOlderThan(Path root, long cutoff, SweepRun run, boolean quarantined) throws IOException, InterruptedException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        walk(root, run, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (attributes.lastModifiedTime().toMillis() < cutoff) {
+                    run.pace();
+                    if (Files.deleteIfExists(file)) {
+                        if (quarantined) {
+                            quarantineBytesDeleted.addAndGet(attributes.size());
+                        } else {
+                            run.filesRemoved++;
+                            run.bytesReclaimed += attributes.size();
+                        }
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void remove(Path root, Path file, long size, SweepRun run) throws IOException {
+        if ("delete".equalsIgnoreCase(mode)) {
+            if (!Files.deleteIfExists(file)) {
+                return;
+            }
+        } else {
+            Path target = Paths.get(quarantineDir).toAbsolutePath().normalize().resolve(root.relativize(file));
+            Files.createDirectories(target.getParent());
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+            // Restart the clock so the quarantine period counts from now
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        run.filesRemoved++;
+        run.bytesReclaimed += size;
+    }
+
+    // Same modes as remove, for a blob and its variants in the backend: quarantine keeps a local copy first
+    private void removeBlob(String key, long size, SweepRun run) throws IOException {
+        List<String> keys = new ArrayList<>(ImageDerivativeService.variantKeys(key));
+        keys.add(key);
+        for (String blobKey : keys) {
+            if (!"delete".equalsIgnoreCase(mode)) {
+                if (!blobBackend.exists(blobKey)) {
+                    continue;
+                }
+                Path target = Paths.get(quarantineDir).toAbsolutePath().normalize().resolve(blobKey);
+                Files.createDirectories(target.getParent());
+                try (InputStream in = blobBackend.open(blobKey)) {
+                    Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            blobBackend.delete(blobKey);
+        }
+        run.filesRemoved++;
+        run.bytesReclaimed += size;
+    }
+
+    // One bad file is logged and skipped rather than ending the sweep
+    private static void walk(Path root, SweepRun run, SimpleFileVisitor<Path> visitor) throws IOException, InterruptedException {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                    return visitor.preVisitDirectory(dir, attributes);
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    try {
+                        return visitor.visitFile(file, attributes);
+                    } catch (IOException e) {
+                        System.err.println("Upload sweep skipped " + file + ": " + e.getMessage());
+                        run.errors++;
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (SweepInterrupted e) {
+            throw (InterruptedException) e.getCause();
+        }
+    }
+
+    private final class SweepRun {
+        private final long startedAt = System.currentTimeMillis();
+        private final long cutoff;
+        private final long pauseNanos;
+        private long nextRemovalAt = System.nanoTime();
+        private Set<String> referenced;
+        private long filesScanned;
+        private long filesRemoved;
+        private long bytesReclaimed;
+        private long errors;
+
+        SweepRun(long cutoff) {
+            this.cutoff = cutoff;
+            this.pauseNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxRemovalsPerSecond);
+        }
+
+        // Spaces removals evenly so a large backlog does not saturate the disk
+        void pace() {
+            long now = System.nanoTime();
+            nextRemovalAt = Math.max(nextRemovalAt, now) + pauseNanos;
+            long wait = nextRemovalAt - pauseNanos - now;
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SweepInterrupted(e);
+                }
+            }
+        }
+    }
+
+    private static final class SweepInterrupted extends RuntimeException {
+        SweepInterrupted(InterruptedException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package backend.service;
+
+import backend.model.UploadBlob;
+import backend.repository.UploadBlobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+// Content-addressed upload store: each distinct file is kept once, named by its SHA-256,
+// and reference-counted by the recipes, plans and users that point at it.
+// Files are sharded by hash prefix ("ab/cd/abcd...jpg") and kept in a pluggable BlobBackend.
+@Service
+public class UploadStore {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LOCK_STRIPES = 64;
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("^\\.[A-Za-z0-9]{1,10}$");
+    private static final Pattern STORED_NAME = Pattern.compile("^([0-9a-f]{64})(\\.[A-Za-z0-9]{1,10})?$");
+
+    @Autowired
+    private UploadBlobRepository uploadBlobRepository;
+
+    @Autowired
+    private BlobBackend blobBackend;
+
+    // Uploads are written and hashed here before being handed to the backend
+    @Value("${app.upload.staging-dir:src/main/resources/upload-staging/}")
+    private String stagingDir;
+
+    // Serializes file moves and count changes per digest, so a sweep never races a re-upload of the same content
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public UploadStore() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // created is false when identical content was already stored
+    public record StoredFile(String fileName, String key, boolean created) {
+    }
+
+    // Hashes the stream while copying it to a temp file, then keeps it only if the content is new
+    public StoredFile store(InputStream in, String originalFilename) throws IOException {
+        Path staging = Paths.get(stagingDir);
+        Files.createDirectories(staging);
+        Path temp = Files.createTempFile(staging, "upload", ".tmp");
+        try {
+            MessageDigest sha256 = sha256();
+            long size;
+            try (InputStream source = new DigestInputStream(in, sha256)) {
+                size = Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return commit(temp, hex(sha256.digest()), size, originalFilename);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Same as store, for a file already on disk (e.g. an assembled chunked upload); the file is moved, not copied
+    public StoredFile storeFile(Path file, String originalFilename) throws IOException {
+        MessageDigest sha256 = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                sha256.update(buffer);
+                buffer.clear();
+            }
+        }
+        try {
+            return commit(file, hex(sha256.digest()), Files.size(file), originalFilename);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // Backend key for a stored file name; two levels of two hex characters keep every directory small
+    public static String keyFor(String fileName) {
+        if (!isStoredName(fileName)) {
+            throw new IllegalArgumentException("Not a stored upload name: " + fileName);
+        }
+        return fileName.substring(0, 2) + "/" + fileName.substring(2, 4) + "/" + fileName;
+    }
+
+    public static boolean isStoredName(String fileName) {
+        return fileName != null && STORED_NAME.matcher(fileName).matches();
+    }
+
+    // File names in a column value: a single path or URL, or a comma-separated list of them
+    public static List<String> fileNames(String value) {
+        List<String> names = new ArrayList<>();
+        if (value == null || value.isBlank()) {
+            return names;
+        }
+        for (String part : value.split(",")) {
+            String name = part.trim();
+            name = name.substring(name.lastIndexOf('/') + 1);
+            int query = name.indexOf('?');
+            if (query >= 0) {
+                name = name.substring(0, query);
+            }
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    // The subset of fileNames that are stored (content-addressed) uploads
+    public static List<String> references(String value) {
+        List<String> names = fileNames(value);
+        names.removeIf(name -> !isStoredName(name));
+        return names;
+    }
+
+    // Adjust counts for a column that changed from one set of references to another.
+    // Call it inside the transaction that saves the column, with before read under the row lock (findByIdForUpdate):
+    // otherwise two edits of one row both release the same old file. Names are visited in order so that
+    // transactions touching the same blobs lock their upload_blob rows in the same order
+    public void updateReferences(String before, String after) {
+        Map<String, Integer> delta = new TreeMap<>();
+        for (String name : references(after)) {
+            delta.merge(name, 1, Integer::sum);
+        }
+        for (String name : references(before)) {
+            delta.merge(name, -1, Integer::sum);
+        }
+        delta.forEach((name, change) -> {
+            for (int i = 0; i < Math.abs(change); i++) {
+                if (change > 0) {
+                    retain(name);
+                } else {
+                    release(name);
+                }
+            }
+        });
+    }
+
+    public void retain(String fileName) {
+        String digest = digestOf(fileName);
+        if (digest != null) {
+            synchronized (lockFor(digest)) {
+                uploadBlobRepository.incrementRefCount(digest);
+            }
+        }
+    }
+
+    // Dropping to zero deletes nothing; it only makes the blob a candidate for UploadGarbageCollector
+    public void release(String fileName) {
+        String digest = digestOf(fileName);
+        if (digest != null) {
+            synchronized (lockFor(digest)) {
+                uploadBlobRepository.decrementRefCount(digest);
+            }
+        }
+    }
+
+    public void releaseAll(Collection<String> values) {
+        for (String value : values) {
+            updateReferences(value, null);
+        }
+    }
+
+    public interface FileRemoval {
+        void remove() throws IOException;
+    }
+
+    // Lets the upload sweeper remove a stored file no column points at, under the digest lock so it cannot
+    // race a re-upload of the same content; skipped while counted as referenced or recently uploaded
+    public boolean removeIfUnreferenced(String fileName, long cutoff, FileRemoval removal) throws IOException {
+        String digest = digestOf(fileName);
+        if (digest == null) {
+            return false;
+        }
+        synchronized (lockFor(digest)) {
+            UploadBlob blob = uploadBlobRepository.findById(digest).orElse(null);
+            if (blob != null && (blob.getRefCount() > 0 || blob.getLastStoredAt() >= cutoff)) {
+                return false;
+            }
+            removal.remove();
+            if (blob != null) {
+                uploadBlobRepository.delete(blob);
+            }
+            return true;
+        }
+    }
+
+    private StoredFile commit(Path candidate, String digest, long size, String originalFilename) throws IOException {
+        long now = System.currentTimeMillis();
+        synchronized (lockFor(digest)) {
+            UploadBlob existing = uploadBlobRepository.findById(digest).orElse(null);
+            if (existing != null && blobBackend.exists(keyFor(existing.getFileName()))) {
+                uploadBlobRepository.touch(digest, now);
+                return new StoredFile(existing.getFileName(), keyFor(existing.getFileName()), false);
+            }
+
+            // New content, or a row whose file went missing: put the file (back) in place
+            String fileName = existing != null ? existing.getFileName() : digest + extensionOf(originalFilename);
+            String key = keyFor(fileName);
+            blobBackend.put(key, candidate);
+            if (existing == null) {
+                uploadBlobRepository.save(new UploadBlob(digest, fileName, size, now));
+            } else {
+                uploadBlobRepository.touch(digest, now);
+            }
+            return new StoredFile(fileName, key, true);
+        }
+    }
+
+    private Object lockFor(String digest) {
+        return locks[Math.floorMod(digest.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static String digestOf(String fileName) {
+        if (!isStoredName(fileName)) {
+            return null;
+        }
+        int dot = fileName.indexOf('.');
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null) {
+            return "";
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        if (dot < 0) {
+            return "";
+        }
+        String extension = originalFilename.substring(dot);
+        return SAFE_EXTENSION.matcher(extension).matches() ? extension.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
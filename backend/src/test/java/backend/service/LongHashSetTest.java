@@ -0,0 +1,111 @@
+package backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashSetTest {
+
+	@Test
+	void addRemoveAndContains() {
+		LongHashSet set = new LongHashSet();
+
+		assertThat(set.add(42)).isTrue();
+		assertThat(set.add(42)).isFalse();
+		assertThat(set.add(-7)).isTrue();
+		assertThat(set.contains(42)).isTrue();
+		assertThat(set.contains(-7)).isTrue();
+		assertThat(set.contains(43)).isFalse();
+		assertThat(set.size()).isEqualTo(2);
+
+		assertThat(set.remove(42)).isTrue();
+		assertThat(set.remove(42)).isFalse();
+		assertThat(set.contains(42)).isFalse();
+		assertThat(set.size()).isEqualTo(1);
+	}
+
+	@Test
+	void zeroIsAValueLikeAnyOther() {
+		LongHashSet set = new LongHashSet();
+
+		assertThat(set.contains(0)).isFalse();
+		assertThat(set.add(0)).isTrue();
+		assertThat(set.add(0)).isFalse();
+		assertThat(set.contains(0)).isTrue();
+		assertThat(set.toSortedArray()).containsExactly(0);
+		assertThat(set.remove(0)).isTrue();
+		assertThat(set.isEmpty()).isTrue();
+	}
+
+	@Test
+	void growsPastTheExpectedSize() {
+		LongHashSet set = new LongHashSet(2);
+		for (long value = 1; value <= 10_000; value++) {
+			set.add(value);
+		}
+
+		assertThat(set.size()).isEqualTo(10_000);
+		for (long value = 1; value <= 10_000; value++) {
+			assertThat(set.contains(value)).isTrue();
+		}
+		assertThat(set.contains(10_001)).isFalse();
+	}
+
+	@Test
+	void toSortedArrayAndForEachSeeEveryValue() {
+		LongHashSet set = new LongHashSet();
+		for (long value : new long[]{5, -3, 0, Long.MAX_VALUE, Long.MIN_VALUE, 12}) {
+			set.add(value);
+		}
+
+		assertThat(set.toSortedArray()).containsExactly(Long.MIN_VALUE, -3, 0, 5, 12, Long.MAX_VALUE);
+		List<Long> seen = new ArrayList<>();
+		set.forEach(seen::add);
+		assertThat(seen).containsExactlyInAnyOrder(Long.MIN_VALUE, -3L, 0L, 5L, 12L, Long.MAX_VALUE);
+	}
+
+	// A small value range in a small table keeps probe runs long and wrapping around the end,
+	// so removals constantly shift entries back into holes
+	@Test
+	void matchesHashSetUnderRandomAddsAndRemoves() {
+		Random random = new Random(18);
+		for (int round = 0; round < 20; round++) {
+			LongHashSet set = new LongHashSet();
+			Set<Long> expected = new HashSet<>();
+			for (int op = 0; op < 5_000; op++) {
+				long value = random.nextInt(64) - 8;
+				if (random.nextInt(3) == 0) {
+					assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+				} else {
+					assertThat(set.add(value)).isEqualTo(expected.add(value));
+				}
+				assertThat(set.size()).isEqualTo(expected.size());
+			}
+			for (long value = -8; value < 56; value++) {
+				assertThat(set.contains(value)).as("contains %d", value).isEqualTo(expected.contains(value));
+			}
+			assertThat(set.toSortedArray()).containsExactly(expected.stream().sorted().mapToLong(Long::longValue).toArray());
+		}
+	}
+
+	@Test
+	void removingEverythingLeavesNoTrace() {
+		LongHashSet set = new LongHashSet();
+		for (long value = 0; value < 1_000; value++) {
+			set.add(value * 1_000_003);
+		}
+		for (long value = 0; value < 1_000; value++) {
+			assertThat(set.remove(value * 1_000_003)).isTrue();
+		}
+
+		assertThat(set.isEmpty()).isTrue();
+		assertThat(set.toSortedArray()).isEmpty();
+		assertThat(set.contains(1_000_003)).isFalse();
+	}
+}
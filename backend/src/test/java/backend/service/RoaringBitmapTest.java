@@ -0,0 +1,156 @@
+package backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoaringBitmapTest {
+
+	@Test
+	void addRemoveAndContains() {
+		RoaringBitmap bitmap = new RoaringBitmap();
+		bitmap.add(3);
+		bitmap.add(70_000);
+		bitmap.add(3);
+
+		assertThat(bitmap.contains(3)).isTrue();
+		assertThat(bitmap.contains(70_000)).isTrue();
+		assertThat(bitmap.contains(4)).isFalse();
+		assertThat(values(bitmap)).containsExactly(3, 70_000);
+
+		bitmap.remove(3);
+		bitmap.remove(5); // Not present
+		assertThat(values(bitmap)).containsExactly(70_000);
+		bitmap.remove(70_000);
+		assertThat(bitmap.isEmpty()).isTrue();
+	}
+
+	@Test
+	void switchesBetweenArrayAndBitmapContainers() {
+		RoaringBitmap bitmap = new RoaringBitmap();
+		for (int value = 0; value < 10_000; value += 2) {
+			bitmap.add(value); // 5000 values in one chunk, more than an array container holds
+		}
+
+		assertThat(values(bitmap)).hasSize(5_000);
+		assertThat(bitmap.contains(9_998)).isTrue();
+		assertThat(bitmap.contains(9_999)).isFalse();
+
+		for (int value = 0; value < 10_000; value += 2) {
+			bitmap.remove(value);
+		}
+		assertThat(bitmap.isEmpty()).isTrue();
+	}
+
+	@Test
+	void copyIsIndependent() {
+		RoaringBitmap bitmap = bitmapOf(1, 2, 100_000);
+		RoaringBitmap copy = bitmap.copy();
+		copy.add(3);
+		copy.remove(100_000);
+
+		assertThat(values(bitmap)).containsExactly(1, 2, 100_000);
+		assertThat(values(copy)).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	void setOperationsMatchTreeSet() {
+		Random random = new Random(3);
+		for (int round = 0; round < 20; round++) {
+			// Dense rounds produce bitmap containers, sparse ones array containers, over a few chunks
+			int density = round % 2 == 0 ? 8 : 200;
+			TreeSet<Integer> left = randomSet(random, density);
+			TreeSet<Integer> right = randomSet(random, density);
+			RoaringBitmap a = bitmapOf(left);
+			RoaringBitmap b = bitmapOf(right);
+
+			TreeSet<Integer> and = new TreeSet<>(left);
+			and.retainAll(right);
+			TreeSet<Integer> or = new TreeSet<>(left);
+			or.addAll(right);
+			TreeSet<Integer> xor = new TreeSet<>(or);
+			xor.removeAll(and);
+
+			assertThat(values(RoaringBitmap.and(a, b))).containsExactlyElementsOf(and);
+			assertThat(values(RoaringBitmap.or(a, b))).containsExactlyElementsOf(or);
+			assertThat(values(RoaringBitmap.xor(a, b))).containsExactlyElementsOf(xor);
+			assertThat(values(a)).containsExactlyElementsOf(left); // Inputs are left untouched
+		}
+	}
+
+	@Test
+	void setOperationsMatchTreeSetAcrossContainerKinds() {
+		Random random = new Random(7);
+		// Array against bitmap containers, and sparse arrays whose union or difference outgrows an array
+		int[][] densities = {{8, 200}, {200, 8}, {30, 30}, {2, 2}};
+		for (int[] density : densities) {
+			TreeSet<Integer> left = randomSet(random, density[0]);
+			TreeSet<Integer> right = randomSet(random, density[1]);
+			RoaringBitmap a = bitmapOf(left);
+			RoaringBitmap b = bitmapOf(right);
+
+			TreeSet<Integer> and = new TreeSet<>(left);
+			and.retainAll(right);
+			TreeSet<Integer> or = new TreeSet<>(left);
+			or.addAll(right);
+			TreeSet<Integer> xor = new TreeSet<>(or);
+			xor.removeAll(and);
+
+			assertThat(values(RoaringBitmap.and(a, b))).containsExactlyElementsOf(and);
+			assertThat(values(RoaringBitmap.or(a, b))).containsExactlyElementsOf(or);
+			assertThat(values(RoaringBitmap.xor(a, b))).containsExactlyElementsOf(xor);
+			assertThat(values(b)).containsExactlyElementsOf(right);
+
+			// Combined containers stay usable for further edits
+			RoaringBitmap union = RoaringBitmap.or(a, b);
+			for (int value = 0; value < 2_000; value += 3) {
+				union.add(value);
+				or.add(value);
+				union.remove(value + 1);
+				or.remove(value + 1);
+			}
+			assertThat(values(union)).containsExactlyElementsOf(or);
+		}
+	}
+
+	@Test
+	void xorOfEqualSetsIsEmpty() {
+		RoaringBitmap a = bitmapOf(1, 65_536, 200_000);
+
+		assertThat(RoaringBitmap.xor(a, a.copy()).isEmpty()).isTrue();
+		assertThat(RoaringBitmap.and(a, new RoaringBitmap()).isEmpty()).isTrue();
+	}
+
+	private static TreeSet<Integer> randomSet(Random random, int density) {
+		TreeSet<Integer> set = new TreeSet<>();
+		for (int value = 0; value < 4 * 65_536; value += 1 + random.nextInt(density)) {
+			set.add(value);
+		}
+		return set;
+	}
+
+	private static RoaringBitmap bitmapOf(Iterable<Integer> values) {
+		RoaringBitmap bitmap = new RoaringBitmap();
+		values.forEach(bitmap::add);
+		return bitmap;
+	}
+
+	private static RoaringBitmap bitmapOf(int... values) {
+		RoaringBitmap bitmap = new RoaringBitmap();
+		for (int value : values) {
+			bitmap.add(value);
+		}
+		return bitmap;
+	}
+
+	private static List<Integer> values(RoaringBitmap bitmap) {
+		List<Integer> values = new ArrayList<>();
+		bitmap.forEach(values::add);
+		return values;
+	}
+}